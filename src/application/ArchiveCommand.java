@@ -0,0 +1,87 @@
+package application;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.archive.GameArchive;
+import chess.archive.GameArchiveWriter;
+import chess.pgn.PgnReplay;
+import chess.pgn.ReplayStats;
+
+/*
+ Converte um arquivo PGN para o formato binário do GameArchive e lê partidas
+ dele.
+ Uso: ArchiveCommand build arquivo.pgn arquivo.cga [threads]
+      ArchiveCommand replay arquivo.cga     (reproduz todas e mede partidas/s)
+      ArchiveCommand show arquivo.cga n     (lances e posição final da partida n)
+ */
+public class ArchiveCommand {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length >= 3 && args[0].equals("build")) {
+			build(args[1], Paths.get(args[2]), args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors());
+		}
+		else if (args.length >= 2 && args[0].equals("replay")) {
+			replay(Paths.get(args[1]));
+		}
+		else if (args.length >= 3 && args[0].equals("show")) {
+			show(Paths.get(args[1]), Integer.parseInt(args[2]));
+		}
+		else {
+			System.out.println("Usage: ArchiveCommand build file.pgn file.cga [threads]");
+			System.out.println("       ArchiveCommand replay file.cga");
+			System.out.println("       ArchiveCommand show file.cga game");
+		}
+	}
+	
+	private static void build(String pgn, Path archive, int threads) throws IOException {
+		InputStream in = new FileInputStream(pgn);
+		if (pgn.endsWith(".gz")) {
+			in = new GZIPInputStream(in, 1 << 16);
+		}
+		ReplayStats stats;
+		int games;
+		try (GameArchiveWriter writer = new GameArchiveWriter(archive)) {
+			stats = new PgnReplay(threads).run(in, writer);
+			games = writer.size();
+		}
+		System.out.println(stats);
+		System.out.printf("%,d games written, %,d bytes (%.1f%% of the PGN text)%n", games, Files.size(archive),
+				100.0 * Files.size(archive) / Math.max(1, stats.getBytes()));
+	}
+	
+	private static void replay(Path path) throws IOException {
+		try (GameArchive archive = new GameArchive(path)) {
+			long start = System.nanoTime();
+			long moves = 0;
+			for (int i = 0; i < archive.size(); i++) {
+				archive.replay(i);
+				moves += archive.getMoveCount(i);
+			}
+			long nanos = Math.max(1, System.nanoTime() - start);
+			System.out.printf("%,d games, %,d moves in %,d ms: %,.0f games/s, %,.0f moves/s%n", archive.size(), moves,
+					nanos / 1_000_000, archive.size() * 1e9 / nanos, moves * 1e9 / nanos);
+		}
+	}
+	
+	private static void show(Path path, int game) throws IOException {
+		try (GameArchive archive = new GameArchive(path)) {
+			String fen = archive.getFen(game);
+			ChessMatch chessMatch = fen == null ? new ChessMatch() : new ChessMatch(fen);
+			archive.replay(game, archive.getMoveCount(game), chessMatch);
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < chessMatch.getPly(); i++) {
+				sb.append(Move.toString(chessMatch.getMove(i))).append(' ');
+			}
+			System.out.println(sb.append(GameArchive.resultString(archive.getResult(game))));
+			System.out.println(chessMatch.toFen());
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.ChessPosition;
+import chess.MoveList;
+import chess.PieceType;
+import engine.Perft;
+
+/*
+ Micro-benchmarks do núcleo de regras: para cada operação roda um aquecimento e
+ depois mede operações por segundo e bytes alocados por operação (pelo contador
+ de alocação da thread da JVM). Serve para comparar números antes e depois de
+ cada mudança de desempenho.
+ Uso: Benchmark [segundos por medida]
+ */
+public class Benchmark {
+
+	//Acumula os resultados para o JIT não eliminar as operações medidas
+	private static long sink;
+	
+	private interface Operation {
+		long run();
+	}
+	
+	public static void main(String[] args) {
+		double seconds = args.length > 0 ? Double.parseDouble(args[0]) : 1.0;
+		
+		ChessMatch initial = new ChessMatch();
+		ChessMatch middlegame = play("E2E4", "E7E5", "G1F3", "B8C6", "F1C4", "F8C5", "C2C3", "G8F6", "D2D4", "E5D4", "C3D4", "C5B4", "B1C3", "F6E4");
+		ChessMatch inCheck = play("E2E4", "F7F5", "D1H5");
+		
+		System.out.printf("%-28s %16s %12s %12s%n", "operation", "ops/s", "ns/op", "bytes/op");
+		for (PieceType type : PieceType.values()) {
+			ChessPiece[] pieces = piecesOfType(middlegame, type);
+			int[] next = new int[1];
+			measure("possibleMoves " + type, seconds, () -> {
+				ChessPiece p = pieces[next[0]++ % pieces.length];
+				return p.possibleMoves().length;
+			});
+		}
+		
+		MoveList moves = new MoveList();
+		measure("generateMoves (side)", seconds, () -> {
+			middlegame.generateMoves(moves);
+			return moves.size();
+		});
+		measure("generateLegalMoves (side)", seconds, () -> {
+			middlegame.generateLegalMoves(moves);
+			return moves.size();
+		});
+		
+		ChessPosition e2 = ChessPosition.of('E', 2);
+		ChessPosition e4 = ChessPosition.of('E', 4);
+		measure("performChessMove + undo", seconds, () -> {
+			initial.performChessMove(e2, e4);
+			initial.undoMove();
+			return initial.getTurn();
+		});
+		
+		measure("evaluate", seconds, () -> middlegame.evaluate());
+		measure("testCheck", seconds, () -> middlegame.testCheck(middlegame.getCurrentPlayer()) ? 1 : 0);
+		measure("testCheckMate (in check)", seconds, () -> inCheck.testCheckMate(inCheck.getCurrentPlayer()) ? 1 : 0);
+		
+		Perft perft = new Perft(middlegame, 3);
+		measure("perft 3 (nodes)", seconds, () -> perft.perft(3), perft.perft(3), 1);
+		
+		if (sink == 42) {
+			System.out.println();
+		}
+	}
+	
+	private static ChessMatch play(String... moves) {
+		ChessMatch chessMatch = new ChessMatch();
+		for (String move : moves) {
+			chessMatch.performChessMove(ChessPosition.of(move.charAt(0), move.charAt(1) - '0'),
+					ChessPosition.of(move.charAt(2), move.charAt(3) - '0'));
+		}
+		return chessMatch;
+	}
+	
+	private static ChessPiece[] piecesOfType(ChessMatch chessMatch, PieceType type) {
+		ChessPiece[][] mat = chessMatch.getPieces();
+		int count = 0;
+		ChessPiece[] found = new ChessPiece[32];
+		for (ChessPiece[] row : mat) {
+			for (ChessPiece p : row) {
+				if (p != null && p.getType() == type) {
+					found[count++] = p;
+				}
+			}
+		}
+		return Arrays.copyOf(found, count);
+	}
+	
+	private static void measure(String name, double seconds, Operation operation) {
+		measure(name, seconds, operation, 1, 64);
+	}
+	
+	/*unitsPerOperation permite contar nós em vez de chamadas (perft) e batch é quantas
+	 operações rodam entre duas leituras do relógio*/
+	private static void measure(String name, double seconds, Operation operation, long unitsPerOperation, int batch) {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long threadId = Thread.currentThread().getId();
+		long budget = (long) (seconds * 1e9);
+		
+		//Aquecimento para o JIT compilar o caminho medido
+		run(operation, budget, batch);
+		
+		long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+		long start = System.nanoTime();
+		long operations = run(operation, budget, batch);
+		long elapsed = System.nanoTime() - start;
+		long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+		
+		System.out.printf("%-28s %,16d %,12.1f %,12.1f%n", name,
+				(long) (operations * unitsPerOperation * 1e9 / elapsed),
+				(double) elapsed / operations,
+				(double) bytes / operations);
+	}
+	
+	private static long run(Operation operation, long budget, int batch) {
+		long operations = 0;
+		long start = System.nanoTime();
+		do {
+			for (int i = 0; i < batch; i++) {
+				sink += operation.run();
+			}
+			operations += batch;
+		} while (System.nanoTime() - start < budget);
+		return operations;
+	}
+}
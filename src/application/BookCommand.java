@@ -0,0 +1,88 @@
+package application;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+import chess.archive.GameArchive;
+import chess.book.OpeningBook;
+import chess.book.OpeningBookBuilder;
+import chess.pgn.PgnReplay;
+import chess.pgn.San;
+
+/*
+ Monta um livro de aberturas a partir de um PGN (ou .pgn.gz) ou de um arquivo
+ do GameArchive (.cga) e consulta posições nele.
+ Uso: BookCommand build partidas livro.book [lances]
+      BookCommand probe livro.book [FEN]
+ */
+public class BookCommand {
+
+	private static final int DEFAULT_PLIES = 20;
+	private static final int PROBES = 1_000_000;
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length >= 3 && args[0].equals("build")) {
+			build(args[1], Paths.get(args[2]), args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_PLIES);
+		}
+		else if (args.length >= 2 && args[0].equals("probe")) {
+			probe(Paths.get(args[1]), args.length > 2 ? new ChessMatch(args[2]) : new ChessMatch());
+		}
+		else {
+			System.out.println("Usage: BookCommand build games book [plies]");
+			System.out.println("       BookCommand probe book [FEN]");
+		}
+	}
+	
+	private static void build(String games, Path book, int plies) throws IOException {
+		long start = System.nanoTime();
+		OpeningBookBuilder builder = new OpeningBookBuilder(plies);
+		if (games.endsWith(".cga")) {
+			try (GameArchive archive = new GameArchive(Paths.get(games))) {
+				builder.addArchive(archive);
+			}
+		}
+		else {
+			InputStream in = new FileInputStream(games);
+			if (games.endsWith(".gz")) {
+				in = new GZIPInputStream(in, 1 << 16);
+			}
+			new PgnReplay(Runtime.getRuntime().availableProcessors()).run(in, builder);
+		}
+		int moves = builder.size();
+		int entries = builder.write(book);
+		System.out.printf("%,d book moves from %,d game moves in %,d ms%n", entries, moves, (System.nanoTime() - start) / 1_000_000);
+	}
+	
+	private static void probe(Path path, ChessMatch chessMatch) throws IOException {
+		try (OpeningBook book = new OpeningBook(path)) {
+			long key = chessMatch.getKey();
+			long first = book.find(key);
+			if (first < 0) {
+				System.out.println("Position not in book");
+			}
+			MoveList moves = new MoveList();
+			for (long i = first; i >= 0 && i < book.size() && book.getKey(i) == key; i++) {
+				int compact = book.getCompactMove(i);
+				int move = chessMatch.findMove(compact & 63, (compact >>> 6) & 63, Move.compactPromotion(compact));
+				if (move != Move.NONE) {
+					System.out.println(San.format(chessMatch, move, moves) + " " + book.getWeight(i));
+				}
+			}
+			
+			long start = System.nanoTime();
+			int found = 0;
+			for (int i = 0; i < PROBES; i++) {
+				found += book.probe(chessMatch, moves) ? 1 : 0;
+			}
+			long nanos = System.nanoTime() - start;
+			System.out.printf("%,d entries, %,d probes: %.0f ns per probe%n", book.size(), found, (double) nanos / PROBES);
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package application;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import server.LoadGenerator;
+import server.MatchHost;
+
+/*
+ Servidor de partidas em TCP local (ver MatchHost) e gerador de carga para ele.
+ Uso: HostCommand serve [porta] [máximo de partidas]
+      HostCommand load [partidas] [conexões] [lances] [porta]
+ O load sem porta sobe um servidor na própria JVM, numa porta livre, e mede
+ a memória por partida com todas abertas; com porta, usa um servidor já no ar.
+ */
+public class HostCommand {
+
+	private static final int DEFAULT_PORT = 7070;
+	private static final int DEFAULT_MAX_MATCHES = 100_000;
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length >= 1 && args[0].equals("serve")) {
+			int port = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_PORT;
+			int maxMatches = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_MATCHES;
+			MatchHost host = new MatchHost(InetAddress.getLoopbackAddress(), port, maxMatches);
+			host.start();
+			System.out.println("Listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":" + host.getPort()
+					+ (MatchHost.hasVirtualThreads() ? " (virtual threads)" : " (platform threads)"));
+			Thread.currentThread().join();
+		}
+		else if (args.length >= 1 && args[0].equals("load")) {
+			int matches = args.length > 1 ? Integer.parseInt(args[1]) : 50_000;
+			int connections = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+			int plies = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+			if (args.length > 4) {
+				InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[4]));
+				System.out.println(new LoadGenerator(address, connections, 1).run(matches, plies, () -> {}));
+				return;
+			}
+			load(matches, connections, plies);
+		}
+		else {
+			System.out.println("Usage: HostCommand serve [port] [max matches]");
+			System.out.println("       HostCommand load [matches] [connections] [plies] [port]");
+		}
+	}
+	
+	private static void load(int matches, int connections, int plies) throws IOException {
+		try (MatchHost host = new MatchHost(InetAddress.getLoopbackAddress(), 0, matches)) {
+			host.start();
+			long before = usedMemory();
+			long[] during = new long[1];
+			int[] open = new int[1];
+			InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), host.getPort());
+			LoadGenerator.Report report = new LoadGenerator(address, connections, 1).run(matches, plies, () -> {
+				open[0] = host.size();
+				during[0] = usedMemory();
+			});
+			System.out.println(report);
+			System.out.println((MatchHost.hasVirtualThreads() ? "Virtual" : "Platform") + " threads");
+			System.out.printf("%,d matches open at once, heap %,d MB (%,d bytes per match, host and clients)%n",
+					open[0], during[0] / (1 << 20), (during[0] - before) / Math.max(1, open[0]));
+		}
+	}
+	
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
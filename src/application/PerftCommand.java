@@ -0,0 +1,75 @@
+package application;
+
+import chess.ChessMatch;
+import engine.Perft;
+import engine.SearchResult;
+
+/*
+ Roda o perft nas posições de teste e confere com as contagens de referência.
+ Uso: PerftCommand [profundidade] [divide] [FEN]
+ Com "divide", imprime também a contagem de cada lance da raiz na profundidade pedida.
+ Com uma FEN, roda só nela (sem conferir contagens).
+ */
+public class PerftCommand {
+
+	//Contagens de referência da posição inicial, da profundidade 1 em diante
+	private static final long[] INITIAL_POSITION = { 20, 400, 8902, 197281, 4865609, 119060324 };
+	
+	/*Posições clássicas de teste (nome, FEN e contagens): roques, en passant com
+	 cravada, promoções e xeques descobertos aparecem logo nas primeiras profundidades*/
+	private static final String[] NAMES = { "kiwipete", "position 3", "position 4", "position 5", "position 6" };
+	private static final String[] FENS = {
+			"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+			"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+			"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+			"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+			"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10" };
+	private static final long[][] COUNTS = {
+			{ 48, 2039, 97862, 4085603, 193690690 },
+			{ 14, 191, 2812, 43238, 674624, 11030083 },
+			{ 6, 264, 9467, 422333, 15833292 },
+			{ 44, 1486, 62379, 2103487, 89941194 },
+			{ 46, 2079, 89890, 3894594, 164075551 } };
+	
+	public static void main(String[] args) {
+		int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+		boolean divide = args.length > 1 && args[1].equalsIgnoreCase("divide");
+		
+		if (args.length > 2) {
+			run(args[2], new ChessMatch(args[2]), new long[0], maxDepth, divide);
+			return;
+		}
+		boolean ok = run("initial position", new ChessMatch(), INITIAL_POSITION, maxDepth, divide);
+		for (int i = 0; i < FENS.length; i++) {
+			ok &= run(NAMES[i] + ": " + FENS[i], new ChessMatch(FENS[i]), COUNTS[i], maxDepth, divide);
+		}
+		System.out.println(ok ? "All counts match" : "MISMATCH FOUND");
+		if (!ok) {
+			System.exit(1);
+		}
+	}
+	
+	private static boolean run(String name, ChessMatch chessMatch, long[] expected, int maxDepth, boolean divide) {
+		System.out.println(name);
+		Perft perft = new Perft(chessMatch, maxDepth);
+		boolean ok = true;
+		//Sem contagens de referência roda até maxDepth só mostrando os números
+		int depths = expected.length == 0 ? maxDepth : Math.min(maxDepth, expected.length);
+		for (int depth = 1; depth <= depths; depth++) {
+			long start = System.nanoTime();
+			long nodes = divide && depth == maxDepth ? perft.divide(depth, System.out) : perft.perft(depth);
+			long elapsed = Math.max(1, System.nanoTime() - start);
+			if (expected.length == 0) {
+				System.out.printf("  depth %d: %,d nodes  %.1f ms, %,d nodes/s%n",
+						depth, nodes, elapsed / 1e6, SearchResult.nps(nodes, elapsed));
+				continue;
+			}
+			boolean match = nodes == expected[depth - 1];
+			ok &= match;
+			System.out.printf("  depth %d: %,d nodes (expected %,d) %s  %.1f ms, %,d nodes/s%n",
+					depth, nodes, expected[depth - 1], match ? "OK" : "FAIL",
+					elapsed / 1e6, SearchResult.nps(nodes, elapsed));
+		}
+		return ok;
+	}
+}
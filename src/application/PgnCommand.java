@@ -0,0 +1,43 @@
+package application;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+import chess.pgn.PgnReplay;
+import chess.pgn.ReplayStats;
+
+/*
+ Reproduz um arquivo PGN (ou .pgn.gz) inteiro pelas regras do jogo e mostra
+ quantas partidas por segundo foram processadas e os primeiros erros.
+ Uso: PgnCommand arquivo [threads]
+ */
+public class PgnCommand {
+
+	private static final int MAX_ERRORS = 10;
+	
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.out.println("Usage: PgnCommand file [threads]");
+			return;
+		}
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		
+		InputStream in = new FileInputStream(args[0]);
+		if (args[0].endsWith(".gz")) {
+			in = new GZIPInputStream(in, 1 << 16);
+		}
+		int[] errors = new int[1];
+		ReplayStats stats = new PgnReplay(threads).run(in, game -> {
+			if (!game.isValid()) {
+				synchronized (errors) {
+					if (errors[0]++ < MAX_ERRORS) {
+						System.out.println(game.getTag("White") + " - " + game.getTag("Black") + ": " + game.getError());
+					}
+				}
+			}
+		});
+		System.out.println(stats);
+	}
+}
@@ -18,7 +18,7 @@ public class Program {
 		ChessMatch chessMatch = new ChessMatch();
 		List<ChessPiece> captured = new ArrayList<>();
 		
-		//O programa executa enquanto a varivel checkMate for falsa
+		//O programa executa enquanto a variável checkMate for falsa
 		while(!chessMatch.getCheckMate()) {
 			try {
 				UI.clearScreen();
@@ -36,12 +36,12 @@ public class Program {
 				
 				ChessPiece capturedPiece = chessMatch.performChessMove(source, target);
 				
-				//Verifica o tipo ChessPiece retornado no movimento de xadrez  uma pea, adicionando  lista
+				//Verifica o tipo ChessPiece retornado no movimento de xadrez é uma peça, adicionando à lista
 				//de capturadas, se for o caso
 				if(capturedPiece != null) {
 					captured.add(capturedPiece);
 				}
-				//Recebe para qual pea deve promover o peo
+				//Recebe para qual peça deve promover o peão
 				if(chessMatch.getPromoted() != null) {
 					System.out.print("Enter piece for promotion (Q/B/N/R): ");
 					String type = sc.nextLine().toUpperCase();
@@ -0,0 +1,34 @@
+package application;
+
+import chess.ChessMatch;
+import chess.Move;
+import engine.ParallelSearch;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.TranspositionTable;
+
+/*
+ Roda a busca na posição inicial (ou na FEN fornecida) e imprime cada iteração,
+ para acompanhar a velocidade (nós por segundo) e a profundidade alcançada.
+ Uso: SearchCommand [profundidade] [milissegundos] [threads] [FEN]
+ */
+public class SearchCommand {
+
+	public static void main(String[] args) {
+		SearchLimits limits = SearchLimits.depth(args.length > 0 ? Integer.parseInt(args[0]) : 8);
+		if (args.length > 1) {
+			limits.setMillis(Long.parseLong(args[1]));
+		}
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		ChessMatch chessMatch = args.length > 3 ? new ChessMatch(args[3]) : new ChessMatch();
+		
+		ParallelSearch search = new ParallelSearch(new TranspositionTable(64), threads);
+		search.setListener(result -> System.out.println(result));
+		SearchResult result = search.search(chessMatch, limits);
+		System.out.printf("best move %s, %,d nodes/s%n", Move.toString(result.getBestMove()), result.getNps());
+		long[] nodes = search.getThreadNodes();
+		for (int i = 0; i < nodes.length; i++) {
+			System.out.printf("  thread %d: %,d nodes%n", i, nodes[i]);
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+import chess.pgn.San;
+import chess.tablebase.Tablebase;
+import chess.tablebase.Tablebases;
+
+/*
+ Gera tabelas de finais num diretório e consulta posições nelas.
+ Uso: TablebaseCommand generate diretório material... [threads]  (ex.: KQK KRK KPK KBNK)
+      TablebaseCommand probe diretório FEN
+ */
+public class TablebaseCommand {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length >= 3 && args[0].equals("generate")) {
+			Tablebases tablebases = new Tablebases(Paths.get(args[1]));
+			int last = args.length;
+			int threads = Runtime.getRuntime().availableProcessors();
+			if (args[last - 1].chars().allMatch(Character::isDigit)) {
+				threads = Integer.parseInt(args[--last]);
+			}
+			for (int i = 2; i < last; i++) {
+				long start = System.nanoTime();
+				Tablebase table = tablebases.generate(args[i], threads);
+				System.out.printf("%s: longest mate %d plies, %,d ms%n", table.getMaterial(), table.getMaxPlies(), (System.nanoTime() - start) / 1_000_000);
+			}
+		}
+		else if (args.length >= 3 && args[0].equals("probe")) {
+			Tablebases tablebases = new Tablebases(Paths.get(args[1]));
+			ChessMatch chessMatch = new ChessMatch(args[2]);
+			int score = tablebases.probe(chessMatch);
+			if (score == Tablebases.UNKNOWN) {
+				System.out.println("Position not in the tablebases");
+				return;
+			}
+			if (score == 0) {
+				System.out.println("Draw");
+			}
+			else {
+				System.out.println((score > 0 ? "Win" : "Loss") + ", mate in " + Tablebases.plies(score) + " plies");
+			}
+			int move = tablebases.bestMove(chessMatch);
+			if (move != Move.NONE) {
+				System.out.println("Best move: " + San.format(chessMatch, move, new MoveList()));
+			}
+		}
+		else {
+			System.out.println("Usage: TablebaseCommand generate directory material... [threads]");
+			System.out.println("       TablebaseCommand probe directory FEN");
+		}
+	}
+}
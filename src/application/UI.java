@@ -40,38 +40,39 @@ public class UI {
 		System.out.flush();
 	}
 
-	//L a posio do usurio
+	//Lê a posição do usuário
 	public static ChessPosition readChessPosition(Scanner sc) {
 		try {
 			String s = sc.nextLine();
 			char column = s.charAt(0);
 			int row = Integer.parseInt(s.substring(1));
-			return new ChessPosition(column, row);
+			return ChessPosition.of(column, row);
 		}
 		catch (RuntimeException e) {
 			throw new InputMismatchException("Error reading ChessPosition.");
 		}
 	}
 	
-	//Imprime a partida (alm de apenas o tabuleiro), recebe tambm as peas capturadas
+	//Imprime a partida (além de apenas o tabuleiro), recebe também as peças capturadas
 	public static void printMatch(ChessMatch chessMatch, List<ChessPiece> captured) {
 		printBoard(chessMatch.getPieces());
 		System.out.println();
 		printCapturedPieces(captured);
 		System.out.println();
 		System.out.println("Turn: " + chessMatch.getTurn());
-		//Antes de imprimir o prximo turno testa se teve xequemate
+		//Antes de imprimir o próximo turno testa se teve xequemate
 		if(!chessMatch.getCheckMate()) {
 			System.out.println("Waiting player: " + chessMatch.getCurrentPlayer());
-			//Avisa se o jogador atual est em check
+			//Avisa se o jogador atual está em check
 			if(chessMatch.getCheck()) {
 				System.out.println("CHECK!!");
 			}
 		}
 		else {
 			System.out.println("CHECKMATE!!");
-			System.out.println("Winner: " + chessMatch.getCurrentPlayer());
-			System.out.println(chessMatch.opponent(chessMatch.getCurrentPlayer()) + 
+			//No xequemate a vez já passou para o jogador derrotado
+			System.out.println("Winner: " + chessMatch.opponent(chessMatch.getCurrentPlayer()));
+			System.out.println(chessMatch.getCurrentPlayer() + 
 					ANSI_RED + " BUSTED" + ANSI_RESET);
 		}
 		System.out.println();
@@ -89,7 +90,7 @@ public class UI {
 		System.out.println(ANSI_CYAN + "  A B C D E F G H" + ANSI_RESET);
 	}
 	
-	//Imprime tabuleiro colorindo posies possveis
+	//Imprime tabuleiro colorindo posições possíveis
 	public static void printBoard(ChessPiece[][] pieces, boolean[][] possibleMoves) {
 		for (int i = 0; i < pieces.length; i++) {
 			System.out.print(ANSI_CYAN + (8 - i) + ANSI_RESET + " ");
@@ -101,9 +102,9 @@ public class UI {
 		System.out.println(ANSI_CYAN + "  A B C D E F G H" + ANSI_RESET);
 	}
 
-	//Imprime cada pea de xadrez
+	//Imprime cada peça de xadrez
 	private static void printPiece(ChessPiece piece, boolean background) {
-		//So executa se a varivel background (possibleMoves no metodo printBoard) for true
+		//So executa se a variável background (possibleMoves no metodo printBoard) for true
 		if(background) {
 			System.out.print(ANSI_BLUE_BACKGROUND);
 		}
@@ -121,7 +122,7 @@ public class UI {
 		System.out.print(" ");
 	}
 	
-	//Recebe uma lista de peas capturadas, separa as cores e imprime as duas listas resultantes
+	//Recebe uma lista de peças capturadas, separa as cores e imprime as duas listas resultantes
 	private static void printCapturedPieces(List<ChessPiece> captured) {
 		List<ChessPiece> white = captured.stream().filter(x -> x.getColor() == Color.WHITE).collect(Collectors.toList());
 		List<ChessPiece> black = captured.stream().filter(x -> x.getColor() == Color.BLACK).collect(Collectors.toList());
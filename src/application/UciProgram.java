@@ -0,0 +1,404 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.book.OpeningBook;
+import chess.tablebase.Tablebases;
+import engine.ParallelSearch;
+import engine.SearchLimits;
+import engine.SearchResult;
+import engine.TranspositionTable;
+
+/*
+ Entrada alternativa ao Program que fala o protocolo UCI na entrada e na saída
+ padrão, para usar o motor em interfaces e gerenciadores de torneio.
+
+ A busca roda numa thread própria e a thread principal continua lendo
+ comandos: o stop só pede para a busca parar (ela confere a cada nó) e o
+ bestmove sai assim que ela volta. Durante a busca sai uma linha info por
+ iteração e outra a cada segundo, com nós, nps e hashfull. No go infinite e
+ no go ponder o bestmove espera o stop (ou o ponderhit, que passa a contar o
+ tempo calculado no go).
+ */
+public class UciProgram {
+
+	private static final String NAME = "chess-system-java";
+	private static final String AUTHOR = "PedroGiacomin";
+	
+	private static final int DEFAULT_HASH = 64;
+	private static final int MAX_THREADS = 256;
+	private static final long INFO_INTERVAL = 1000;
+	//Folga descontada do relógio para a comunicação com a interface
+	private static final long MOVE_OVERHEAD = 30;
+	//Lances que se supõe faltarem quando o go não diz (movestogo)
+	private static final int DEFAULT_MOVES_TO_GO = 30;
+	
+	private final PrintStream out;
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "uci-timer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private TranspositionTable table = new TranspositionTable(DEFAULT_HASH);
+	private int threads = 1;
+	private OpeningBook book;
+	private Tablebases tablebases;
+	private ChessMatch chessMatch = new ChessMatch();
+	//Reaproveitado entre os go (com as Search de cada thread) enquanto Hash e Threads não mudam
+	private ParallelSearch engine;
+	
+	//Busca em andamento: a thread, quem ela usa e o que segura o bestmove no infinite/ponder
+	private Thread searchThread;
+	private ParallelSearch search;
+	private volatile boolean stopRequested;
+	private CountDownLatch release;
+	private long ponderMillis;
+	
+	public UciProgram(PrintStream out) {
+		this.out = out;
+	}
+	
+	public static void main(String[] args) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
+		new UciProgram(System.out).run(in);
+	}
+	
+	//Lê e executa comandos até o quit ou o fim da entrada
+	public void run(BufferedReader in) throws IOException {
+		String line;
+		while ((line = in.readLine()) != null) {
+			line = line.trim();
+			if (line.equals("quit")) {
+				break;
+			}
+			if (!line.isEmpty()) {
+				handle(line);
+			}
+		}
+		stopSearch();
+		timer.shutdownNow();
+	}
+	
+	private void handle(String line) {
+		String[] words = line.split("\\s+");
+		switch (words[0]) {
+		case "uci":
+			send("id name " + NAME);
+			send("id author " + AUTHOR);
+			send("option name Hash type spin default " + DEFAULT_HASH + " min " + TranspositionTable.MIN_MEGABYTES + " max " + TranspositionTable.MAX_MEGABYTES);
+			send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+			send("option name Ponder type check default false");
+			send("option name BookFile type string default <empty>");
+			send("option name TablebasePath type string default <empty>");
+			send("uciok");
+			break;
+		case "isready":
+			send("readyok");
+			break;
+		case "ucinewgame":
+			stopSearch();
+			table.clear();
+			break;
+		case "setoption":
+			stopSearch();
+			setOption(words);
+			break;
+		case "position":
+			stopSearch();
+			position(words);
+			break;
+		case "go":
+			stopSearch();
+			go(words);
+			break;
+		case "stop":
+			requestStop();
+			break;
+		case "ponderhit":
+			ponderHit();
+			break;
+		case "d":
+			send(chessMatch.toFen());
+			break;
+		default:
+			send("info string unknown command " + words[0]);
+		}
+	}
+	
+	//setoption name <nome com espaços> [value <valor com espaços>]
+	private void setOption(String[] words) {
+		StringBuilder name = new StringBuilder();
+		StringBuilder value = new StringBuilder();
+		StringBuilder current = null;
+		for (int i = 1; i < words.length; i++) {
+			if (words[i].equals("name") && current == null) {
+				current = name;
+			}
+			else if (words[i].equals("value") && current == name) {
+				current = value;
+			}
+			else if (current != null) {
+				if (current.length() > 0) {
+					current.append(' ');
+				}
+				current.append(words[i]);
+			}
+		}
+		String v = value.toString();
+		try {
+			switch (name.toString().toLowerCase()) {
+			case "hash":
+				table = new TranspositionTable(Integer.parseInt(v));
+				break;
+			case "threads":
+				threads = Math.max(1, Math.min(Integer.parseInt(v), MAX_THREADS));
+				break;
+			case "ponder":
+				break;
+			case "bookfile":
+				if (book != null) {
+					book.close();
+				}
+				book = v.isEmpty() || v.equals("<empty>") ? null : new OpeningBook(Paths.get(v));
+				break;
+			case "tablebasepath":
+				tablebases = v.isEmpty() || v.equals("<empty>") ? null : new Tablebases(Paths.get(v));
+				break;
+			default:
+				send("info string unknown option " + name);
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			send("info string option " + name + ": " + e.getMessage());
+		}
+	}
+	
+	//position startpos|fen <FEN> [moves <lance>...]
+	private void position(String[] words) {
+		int i = 1;
+		ChessMatch match;
+		if (words.length > 1 && words[1].equals("fen")) {
+			StringBuilder fen = new StringBuilder();
+			for (i = 2; i < words.length && !words[i].equals("moves"); i++) {
+				fen.append(words[i]).append(' ');
+			}
+			try {
+				match = new ChessMatch(fen.toString().trim());
+			}
+			catch (RuntimeException e) {
+				send("info string invalid FEN: " + e.getMessage());
+				return;
+			}
+		}
+		else {
+			match = new ChessMatch();
+			i = 2;
+		}
+		if (i < words.length && words[i].equals("moves")) {
+			for (i++; i < words.length; i++) {
+				int move = Move.parse(match, words[i]);
+				if (move == Move.NONE) {
+					send("info string illegal move " + words[i]);
+					break;
+				}
+				match.makeMove(move);
+			}
+		}
+		chessMatch = match;
+	}
+	
+	private void go(String[] words) {
+		SearchLimits limits = new SearchLimits();
+		long time = -1;
+		long increment = 0;
+		int movesToGo = 0;
+		boolean infinite = false;
+		boolean ponder = false;
+		boolean white = chessMatch.getTurn() % 2 == 1;
+		for (int i = 1; i < words.length; i++) {
+			String word = words[i];
+			if (word.equals("infinite")) {
+				infinite = true;
+			}
+			else if (word.equals("ponder")) {
+				ponder = true;
+			}
+			else if (i + 1 < words.length && isNumber(words[i + 1])) {
+				long value = Long.parseLong(words[++i]);
+				switch (word) {
+				case "depth": limits.setDepth((int) value); break;
+				case "nodes": limits.setNodes(value); break;
+				case "movetime": limits.setMillis(Math.max(1, value - MOVE_OVERHEAD)); break;
+				case "wtime": if (white) time = value; break;
+				case "btime": if (!white) time = value; break;
+				case "winc": if (white) increment = value; break;
+				case "binc": if (!white) increment = value; break;
+				case "movestogo": movesToGo = (int) value; break;
+				default: break;
+				}
+			}
+		}
+		if (time >= 0 && limits.getMillis() == 0) {
+			limits.setMillis(budget(time, increment, movesToGo));
+		}
+		//Pensando no tempo do adversário o relógio só conta depois do ponderhit
+		ponderMillis = 0;
+		if (ponder) {
+			ponderMillis = limits.getMillis();
+			limits.setMillis(0);
+		}
+		start(limits, infinite || ponder);
+	}
+	
+	//Tempo para este lance: a parte do relógio para os lances que faltam e quase todo o incremento
+	private static long budget(long time, long increment, int movesToGo) {
+		int moves = movesToGo > 0 ? Math.min(movesToGo, DEFAULT_MOVES_TO_GO) : DEFAULT_MOVES_TO_GO;
+		long budget = time / moves + increment * 3 / 4;
+		return Math.max(1, Math.min(budget, time - MOVE_OVERHEAD));
+	}
+	
+	private void start(SearchLimits limits, boolean hold) {
+		if (engine == null || engine.getThreads() != threads || engine.getTable() != table) {
+			engine = new ParallelSearch(table, threads);
+		}
+		ParallelSearch current = engine;
+		current.setBook(book);
+		current.setTablebases(tablebases);
+		ChessMatch match = chessMatch;
+		CountDownLatch latch = new CountDownLatch(hold ? 1 : 0);
+		long start = System.nanoTime();
+		current.setListener(result -> {
+			send(info(result));
+			//Um stop que chegou antes de a busca começar a conferir é repetido a cada iteração
+			if (stopRequested) {
+				current.stop();
+			}
+		});
+		search = current;
+		release = latch;
+		stopRequested = false;
+		ScheduledFuture<?> ticker = timer.scheduleAtFixedRate(() -> progress(current, start), INFO_INTERVAL, INFO_INTERVAL, TimeUnit.MILLISECONDS);
+		searchThread = new Thread(() -> {
+			SearchResult result;
+			try {
+				result = current.search(match, limits);
+			}
+			catch (RuntimeException e) {
+				ticker.cancel(false);
+				send("info string search failed: " + e);
+				send("bestmove 0000");
+				return;
+			}
+			ticker.cancel(false);
+			//No infinite e no ponder o bestmove só pode sair depois do stop ou do ponderhit
+			try {
+				latch.await();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			send(bestMove(result));
+		}, "uci-search");
+		searchThread.setDaemon(true);
+		searchThread.start();
+	}
+	
+	private void requestStop() {
+		ParallelSearch current = search;
+		if (current == null) {
+			return;
+		}
+		stopRequested = true;
+		current.stop();
+		release.countDown();
+	}
+	
+	//O adversário jogou o lance esperado: a busca continua, agora com o tempo calculado no go
+	private void ponderHit() {
+		ParallelSearch current = search;
+		if (current == null) {
+			return;
+		}
+		if (ponderMillis > 0) {
+			timer.schedule(current::stop, ponderMillis, TimeUnit.MILLISECONDS);
+		}
+		release.countDown();
+	}
+	
+	//Para a busca em andamento (se houver) e espera o bestmove dela sair
+	private void stopSearch() {
+		Thread thread = searchThread;
+		if (thread == null) {
+			return;
+		}
+		requestStop();
+		try {
+			thread.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		searchThread = null;
+		search = null;
+	}
+	
+	//Linha info periódica, entre as iterações
+	private void progress(ParallelSearch current, long start) {
+		long nodes = 0;
+		for (long n : current.getThreadNodes()) {
+			nodes += n;
+		}
+		long nanos = Math.max(1, System.nanoTime() - start);
+		send("info nodes " + nodes + " nps " + SearchResult.nps(nodes, nanos) + " hashfull " + table.hashfull() + " time " + nanos / 1_000_000);
+	}
+	
+	private String info(SearchResult result) {
+		StringBuilder sb = new StringBuilder("info depth ").append(result.getDepth());
+		int mate = result.getMateIn();
+		if (mate != 0) {
+			sb.append(" score mate ").append(mate);
+		}
+		else {
+			sb.append(" score cp ").append(result.getScore());
+		}
+		sb.append(" nodes ").append(result.getNodes()).append(" nps ").append(result.getNps());
+		sb.append(" hashfull ").append(table.hashfull()).append(" time ").append(result.getMillis());
+		sb.append(" pv");
+		for (int move : result.getPv()) {
+			sb.append(' ').append(Move.toString(move));
+		}
+		return sb.toString();
+	}
+	
+	private static String bestMove(SearchResult result) {
+		if (result.getBestMove() == Move.NONE) {
+			return "bestmove 0000";
+		}
+		String line = "bestmove " + Move.toString(result.getBestMove());
+		int[] pv = result.getPv();
+		return pv.length > 1 ? line + " ponder " + Move.toString(pv[1]) : line;
+	}
+	
+	private static boolean isNumber(String word) {
+		return word.matches("-?\\d+");
+	}
+	
+	//As linhas saem inteiras mesmo com a thread da busca e a do relógio escrevendo juntas
+	private synchronized void send(String line) {
+		out.println(line);
+		out.flush();
+	}
+}
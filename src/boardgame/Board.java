@@ -22,7 +22,7 @@ public class Board {
 		return columns;
 	}
 	
-	//Retorna a pea na posio fornecida da matriz pieces
+	//Retorna a peça na posição fornecida da matriz pieces
 	public Piece piece(int row, int column) {
 		if(!positionExists(row, column)) {
 			throw new BoardException("Position not on the board");
@@ -37,32 +37,44 @@ public class Board {
 		return pieces[position.getRow()][position.getColumn()];
 	}
 	
-	//Posiciona uma pea em uma posio do tabuleiro na matriz pieces
+	//Posiciona uma peça em uma posição do tabuleiro na matriz pieces
 	public void placePiece(Piece piece, Position position) {
-		if(thereIsAPiece(position)) {
-			throw new BoardException("There is already a piece on position " + position);
+		if(!positionExists(position)) {
+			throw new BoardException("Position not on the board");
 		}
-		pieces[position.getRow()][position.getColumn()] = piece;
-		piece.position = position;
+		placePiece(piece, position.getRow(), position.getColumn());
+	}
+	
+	//A peça recebe a posição canônica da casa (ver Position.of), sem alocar
+	public void placePiece(Piece piece, int row, int column) {
+		if(piece(row, column) != null) {
+			throw new BoardException("There is already a piece on position " + Position.of(row, column));
+		}
+		pieces[row][column] = piece;
+		piece.position = Position.of(row, column);
 	}
 	
 	/*
-	 Atribui o valor null  posio dada na matriz pieces, retirando-se 
-	 assim a pea que estava na posio, atribuindo o valor null tambm 
-	  posio da pea dada 
+	 Atribui o valor null à posição dada na matriz pieces, retirando-se 
+	 assim a peça que estava na posição, atribuindo o valor null também 
+	 à posição da peça dada 
 	 */
 	public Piece removePiece(Position position) {
 		//Prog defensiva
 		if (!positionExists(position)) {
 			throw new BoardException("Position not on the board");
 		}
-		if (piece(position) == null) {
+		return removePiece(position.getRow(), position.getColumn());
+	}
+	
+	public Piece removePiece(int row, int column) {
+		//Atribui a aux a peça na posição fornecida
+		Piece aux = piece(row, column);
+		if (aux == null) {
 			return null;
 		}
-		//Atribui a aux a pea na posio fornecida
-		Piece aux = piece(position);
 		aux.position = null;
-		pieces[position.getRow()][position.getColumn()] = null;
+		pieces[row][column] = null;
 		return aux;
 	}
 	
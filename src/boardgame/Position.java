@@ -1,34 +1,59 @@
 package boardgame;
 
-public class Position {
+/*
+ Posição imutável. As posições de um tabuleiro de até 8x8 são únicas, criadas
+ uma vez numa tabela estática e devolvidas pelo of, então podem ser guardadas e
+ comparadas à vontade sem alocar a cada lance.
+ */
+public final class Position {
 
-	private int row;
-	private int column;
+	private static final int CACHED = 8;
+	private static final Position[] CACHE = new Position[CACHED * CACHED];
 	
-	public Position(int row, int column) {
+	static {
+		for (int i = 0; i < CACHED; i++) {
+			for (int j = 0; j < CACHED; j++) {
+				CACHE[i * CACHED + j] = new Position(i, j);
+			}
+		}
+	}
+	
+	private final int row;
+	private final int column;
+	
+	private Position(int row, int column) {
 		this.row = row;
 		this.column = column;
 	}
+	
+	//Posição canônica da tabela; fora dela (tabuleiros maiores) cria uma nova
+	public static Position of(int row, int column) {
+		if (row >= 0 && row < CACHED && column >= 0 && column < CACHED) {
+			return CACHE[row * CACHED + column];
+		}
+		return new Position(row, column);
+	}
 
 	public int getRow() {
 		return row;
 	}
 
-	public void setRow(int row) {
-		this.row = row;
-	}
-
 	public int getColumn() {
 		return column;
 	}
-
-	public void setColumn(int column) {
-		this.column = column;
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Position)) {
+			return false;
+		}
+		Position other = (Position) obj;
+		return row == other.row && column == other.column;
 	}
 	
-	public void setValues(int row, int column) {
-		this.row = row;
-		this.column = column;
+	@Override
+	public int hashCode() {
+		return row * 31 + column;
 	}
 	
 	@Override
@@ -0,0 +1,217 @@
+package chess;
+
+/*
+ Casas atacadas por cada tipo de peça, como máscaras de 64 bits no mesmo
+ índice do ChessBoard (A8 = bit 0). Andar uma linha para cima (em direção à
+ linha 8) é deslocar 8 bits para a direita, andar uma coluna para a direita é
+ deslocar 1 bit para a esquerda; as máscaras de coluna impedem que os lances
+ "dêem a volta" no tabuleiro.
+
+ Torre e bispo usam magic bitboards: das peças que estão no caminho da peça
+ (a ocupação dentro da máscara da casa), uma multiplicação pelo número mágico
+ da casa e um deslocamento dão o índice, numa tabela preenchida na carga da
+ classe, do conjunto de casas atacadas. Os números mágicos foram encontrados
+ uma vez por busca aleatória com semente fixa para este layout (A8 = 0) e
+ ficam fixos no código, para a carga não precisar repetir a busca.
+ */
+public final class Attacks {
+
+	public static final long FILE_A = 0x0101010101010101L;
+	public static final long FILE_B = FILE_A << 1;
+	public static final long FILE_G = FILE_A << 6;
+	public static final long FILE_H = FILE_A << 7;
+
+	private static final long NOT_A = ~FILE_A;
+	private static final long NOT_H = ~FILE_H;
+	private static final long NOT_AB = ~(FILE_A | FILE_B);
+	private static final long NOT_GH = ~(FILE_G | FILE_H);
+	
+	//Ataques de cavalo, rei e peão (por cor) de cada casa, calculados uma vez na carga da classe
+	private static final long[] KNIGHT = new long[ChessBoard.SQUARES];
+	private static final long[] KING = new long[ChessBoard.SQUARES];
+	private static final long[][] PAWN = new long[2][ChessBoard.SQUARES];
+	
+	static {
+		for (int square = 0; square < ChessBoard.SQUARES; square++) {
+			long b = ChessBoard.bit(square);
+			KNIGHT[square] = ((b >>> 6) & NOT_AB) | ((b >>> 10) & NOT_GH)
+					| ((b >>> 15) & NOT_A) | ((b >>> 17) & NOT_H)
+					| ((b << 10) & NOT_AB) | ((b << 6) & NOT_GH)
+					| ((b << 17) & NOT_A) | ((b << 15) & NOT_H);
+			long row = b | ((b << 1) & NOT_A) | ((b >>> 1) & NOT_H);
+			KING[square] = (row | (row >>> 8) | (row << 8)) & ~b;
+			//O peão branco ataca as diagonais acima (em direção à linha 8), o preto as de baixo
+			PAWN[Color.WHITE.ordinal()][square] = ((b >>> 7) & NOT_A) | ((b >>> 9) & NOT_H);
+			PAWN[Color.BLACK.ordinal()][square] = ((b << 9) & NOT_A) | ((b << 7) & NOT_H);
+		}
+	}
+	
+	private static final long[] ROOK_MAGICS = {
+			0x2080002080400010L, 0x00C0002001401000L, 0x2100110008402002L, 0x0880080081041000L,
+			0x0200020020041008L, 0x2300040008010012L, 0x0C00283004008201L, 0x0180010000407A80L,
+			0x0168800080400020L, 0x0010400040201000L, 0x1001002001001048L, 0x1001002408100100L,
+			0x0801000408010012L, 0x4001000209000400L, 0x08A20004C8020001L, 0x2002801145002280L,
+			0x0080860021004200L, 0x001000C009402002L, 0x00B0002004002800L, 0x100A808010020800L,
+			0x8101010008000410L, 0x0244008002000480L, 0x0000040010810208L, 0x2000020000448534L,
+			0x4104400480008033L, 0x0000810100204000L, 0x0440430900200010L, 0x4600240900100100L,
+			0x0060080080040080L, 0x0001000300080400L, 0x0004084400011002L, 0x0023040200008041L,
+			0x0580050043002080L, 0x0400804002802008L, 0x0001002001004010L, 0x1000200901001000L,
+			0x4410800801800C00L, 0xA012003806001004L, 0x0020100104008802L, 0x0004808402000041L,
+			0x0010400170898000L, 0x0080500020004004L, 0x1040408012020020L, 0x8010040008004040L,
+			0x2001080100110004L, 0x0000020004008080L, 0x0021010810040002L, 0x0800008C43020024L,
+			0x0000800021005100L, 0x0070201040008080L, 0x0000D04282006A00L, 0x0010014400080240L,
+			0x0001080110050100L, 0x0012000810240600L, 0x0402000801040200L, 0x028100108A004100L,
+			0x0050800300102045L, 0x8208210040120882L, 0x8010600101183441L, 0x020B000910006045L,
+			0x0241001002480005L, 0x0081000400880241L, 0x0000009008024124L, 0x0048122980410402L };
+	
+	private static final long[] BISHOP_MAGICS = {
+			0x0848020822040013L, 0x8010A40085821200L, 0x0008008430840822L, 0x0808048108040000L,
+			0x1304042100008104L, 0x5001012010204023L, 0x81048801B8200420L, 0x200A008084012000L,
+			0x0040102001042084L, 0x840A505042428020L, 0x0000700102202920L, 0x44101C0C10800002L,
+			0x0040040422000000L, 0x0180020802090202L, 0x4020020811041202L, 0x000104308C042000L,
+			0x4140661002424400L, 0x0028012008010460L, 0x0188062102002A00L, 0x0014004840102008L,
+			0x0105000290400002L, 0x8001022200410400L, 0x104A041918013446L, 0x008A000082008238L,
+			0x04A0060008100430L, 0x0008220008820801L, 0x2508041208005010L, 0x4008080200202020L,
+			0x2441001013004000L, 0x0030008060407000L, 0x4008108000420800L, 0x0012021050290100L,
+			0x0210080482200500L, 0xCC01112048100480L, 0x0020402806500440L, 0x00048E0080580080L,
+			0x0040102020020080L, 0x0028010440080807L, 0x4601041108008800L, 0x8040810E04104200L,
+			0x901210110400088AL, 0xA003080212081050L, 0x00C1004048401004L, 0x900000A014400800L,
+			0x0008021040405401L, 0x4020008206002090L, 0x0004190424030100L, 0x0424008A02026250L,
+			0x8004088250900040L, 0x1C00430088A04200L, 0x0001020094040001L, 0x8040210020880061L,
+			0x2010040450442032L, 0x0800840850044001L, 0x0004040802140004L, 0x0004080A04222020L,
+			0x8088802110022000L, 0x1081A10416114400L, 0x0205010A24060820L, 0x0000000720411080L,
+			0x1008000208430400L, 0x580C026028810840L, 0x802020441020A110L, 0x12C0022401020018L };
+	
+	private static final long[] ROOK_MASKS = new long[ChessBoard.SQUARES];
+	private static final long[] BISHOP_MASKS = new long[ChessBoard.SQUARES];
+	private static final int[] ROOK_SHIFTS = new int[ChessBoard.SQUARES];
+	private static final int[] BISHOP_SHIFTS = new int[ChessBoard.SQUARES];
+	//Cada casa usa o trecho da tabela que começa no seu offset (2^bits da máscara entradas)
+	private static final int[] ROOK_OFFSETS = new int[ChessBoard.SQUARES];
+	private static final int[] BISHOP_OFFSETS = new int[ChessBoard.SQUARES];
+	private static final long[] ROOK_TABLE = new long[102400];
+	private static final long[] BISHOP_TABLE = new long[5248];
+	
+	static {
+		long edgeRows = 0xFFL | (0xFFL << 56);
+		long edgeColumns = FILE_A | FILE_H;
+		int rookOffset = 0;
+		int bishopOffset = 0;
+		for (int square = 0; square < ChessBoard.SQUARES; square++) {
+			//As casas da borda não mudam o ataque (não há nada depois delas), a não ser na linha ou coluna da própria peça
+			long row = 0xFFL << (ChessBoard.row(square) * 8);
+			long column = FILE_A << ChessBoard.column(square);
+			ROOK_MASKS[square] = rookRays(square, 0L) & ~(edgeRows & ~row) & ~(edgeColumns & ~column);
+			BISHOP_MASKS[square] = bishopRays(square, 0L) & ~(edgeRows | edgeColumns);
+			ROOK_SHIFTS[square] = 64 - Long.bitCount(ROOK_MASKS[square]);
+			BISHOP_SHIFTS[square] = 64 - Long.bitCount(BISHOP_MASKS[square]);
+			ROOK_OFFSETS[square] = rookOffset;
+			BISHOP_OFFSETS[square] = bishopOffset;
+			rookOffset += 1 << Long.bitCount(ROOK_MASKS[square]);
+			bishopOffset += 1 << Long.bitCount(BISHOP_MASKS[square]);
+			
+			//Percorre todos os subconjuntos da máscara (truque de Carry-Rippler)
+			long mask = ROOK_MASKS[square];
+			long occupied = 0;
+			do {
+				ROOK_TABLE[ROOK_OFFSETS[square] + (int) ((occupied * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])] = rookRays(square, occupied);
+				occupied = (occupied - mask) & mask;
+			} while (occupied != 0);
+			mask = BISHOP_MASKS[square];
+			do {
+				BISHOP_TABLE[BISHOP_OFFSETS[square] + (int) ((occupied * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])] = bishopRays(square, occupied);
+				occupied = (occupied - mask) & mask;
+			} while (occupied != 0);
+		}
+	}
+	
+	//Casas entre duas casas alinhadas (sem incluí-las) e a linha inteira que passa por elas
+	private static final long[] BETWEEN = new long[ChessBoard.SQUARES * ChessBoard.SQUARES];
+	private static final long[] LINE = new long[ChessBoard.SQUARES * ChessBoard.SQUARES];
+	
+	static {
+		for (int a = 0; a < ChessBoard.SQUARES; a++) {
+			long rookRays = rook(a, 0L);
+			long bishopRays = bishop(a, 0L);
+			for (int b = 0; b < ChessBoard.SQUARES; b++) {
+				long bb = ChessBoard.bit(b);
+				if ((rookRays & bb) != 0) {
+					BETWEEN[a * 64 + b] = rook(a, bb) & rook(b, ChessBoard.bit(a));
+					LINE[a * 64 + b] = (rookRays & rook(b, 0L)) | ChessBoard.bit(a) | bb;
+				}
+				else if ((bishopRays & bb) != 0) {
+					BETWEEN[a * 64 + b] = bishop(a, bb) & bishop(b, ChessBoard.bit(a));
+					LINE[a * 64 + b] = (bishopRays & bishop(b, 0L)) | ChessBoard.bit(a) | bb;
+				}
+			}
+		}
+	}
+
+	private Attacks() {
+	}
+
+	public static long knight(int square) {
+		return KNIGHT[square];
+	}
+
+	public static long king(int square) {
+		return KING[square];
+	}
+
+	//Casas que o peão da cor fornecida ataca (as diagonais à sua frente)
+	public static long pawn(Color color, int square) {
+		return PAWN[color.ordinal()][square];
+	}
+
+	public static long rook(int square, long occupied) {
+		return ROOK_TABLE[ROOK_OFFSETS[square] + (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square])];
+	}
+	
+	public static long bishop(int square, long occupied) {
+		return BISHOP_TABLE[BISHOP_OFFSETS[square] + (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square])];
+	}
+	
+	public static long queen(int square, long occupied) {
+		return rook(square, occupied) | bishop(square, occupied);
+	}
+	
+	//Raios da torre calculados casa a casa, usados só para preencher as tabelas
+	private static long rookRays(int square, long occupied) {
+		long b = ChessBoard.bit(square);
+		long empty = ~occupied;
+		return slide(b, empty, -8, -1L) | slide(b, empty, 8, -1L)
+				| slide(b, empty, 1, NOT_A) | slide(b, empty, -1, NOT_H);
+	}
+
+	private static long bishopRays(int square, long occupied) {
+		long b = ChessBoard.bit(square);
+		long empty = ~occupied;
+		return slide(b, empty, -7, NOT_A) | slide(b, empty, -9, NOT_H)
+				| slide(b, empty, 9, NOT_A) | slide(b, empty, 7, NOT_H);
+	}
+
+	//Casas entre a e b se estiverem na mesma linha, coluna ou diagonal (0 se não estiverem)
+	public static long between(int a, int b) {
+		return BETWEEN[a * 64 + b];
+	}
+	
+	//A linha, coluna ou diagonal inteira que passa por a e b (0 se não estiverem alinhadas)
+	public static long line(int a, int b) {
+		return LINE[a * 64 + b];
+	}
+	
+	//Percorre um raio até a primeira casa ocupada (incluindo-a)
+	private static long slide(long b, long empty, int shift, long mask) {
+		long attacks = 0;
+		b = shift(b, shift) & mask;
+		while (b != 0) {
+			attacks |= b;
+			b = shift(b & empty, shift) & mask;
+		}
+		return attacks;
+	}
+
+	private static long shift(long b, int shift) {
+		return shift > 0 ? b << shift : b >>> -shift;
+	}
+}
@@ -0,0 +1,166 @@
+package chess;
+
+import boardgame.Board;
+import boardgame.BoardException;
+import boardgame.Piece;
+import boardgame.Position;
+
+/*
+ Tabuleiro de xadrez que, além da matriz de peças do Board, mantém uma máscara
+ de 64 bits por cor e por tipo de peça (e a ocupação total). A casa (row, column)
+ corresponde ao bit row * 8 + column, ou seja, A8 é o bit 0 e H1 é o bit 63.
+ As máscaras são atualizadas no placePiece e no removePiece.
+ */
+public class ChessBoard extends Board {
+
+	public static final int SIZE = 8;
+	public static final int SQUARES = SIZE * SIZE;
+
+	private ChessPiece[] squares = new ChessPiece[SQUARES];
+	private long[] colorOccupancy = new long[Color.values().length];
+	private long[] typeOccupancy = new long[PieceType.values().length];
+	private long occupied;
+	private MoveList moveBuffer = new MoveList();
+
+	public ChessBoard() {
+		super(SIZE, SIZE);
+	}
+
+	//Converte linha e coluna da matriz para o índice da casa (0..63)
+	public static int square(int row, int column) {
+		return row * SIZE + column;
+	}
+
+	public static int square(Position position) {
+		return position.getRow() * SIZE + position.getColumn();
+	}
+
+	public static int row(int square) {
+		return square >>> 3;
+	}
+
+	public static int column(int square) {
+		return square & 7;
+	}
+
+	public static long bit(int square) {
+		return 1L << square;
+	}
+
+	@Override
+	public void placePiece(Piece piece, int row, int column) {
+		super.placePiece(piece, row, column);
+		ChessPiece p = (ChessPiece) piece;
+		int sq = square(row, column);
+		long b = bit(sq);
+		squares[sq] = p;
+		colorOccupancy[p.getColor().ordinal()] |= b;
+		typeOccupancy[p.getType().ordinal()] |= b;
+		occupied |= b;
+	}
+
+	@Override
+	public Piece removePiece(int row, int column) {
+		Piece piece = super.removePiece(row, column);
+		if (piece != null) {
+			ChessPiece p = (ChessPiece) piece;
+			int sq = square(row, column);
+			long b = ~bit(sq);
+			squares[sq] = null;
+			colorOccupancy[p.getColor().ordinal()] &= b;
+			typeOccupancy[p.getType().ordinal()] &= b;
+			occupied &= b;
+		}
+		return piece;
+	}
+	
+	public void placePiece(ChessPiece piece, int square) {
+		placePiece(piece, row(square), column(square));
+	}
+	
+	public ChessPiece removePiece(int square) {
+		return (ChessPiece) removePiece(row(square), column(square));
+	}
+
+	@Override
+	public boolean thereIsAPiece(Position position) {
+		if (!positionExists(position)) {
+			throw new BoardException("Position not on the board");
+		}
+		return (occupied & bit(square(position))) != 0;
+	}
+
+	//Retorna a peça na casa fornecida, sem verificação de limites
+	public ChessPiece pieceAt(int square) {
+		return squares[square];
+	}
+
+	public boolean isOccupied(int square) {
+		return (occupied & bit(square)) != 0;
+	}
+
+	public boolean isOccupiedBy(int square, Color color) {
+		return (colorOccupancy[color.ordinal()] & bit(square)) != 0;
+	}
+
+	//Buffer usado pelos adaptadores de possibleMoves das peças
+	MoveList moveBuffer() {
+		return moveBuffer;
+	}
+
+	public long occupied() {
+		return occupied;
+	}
+
+	public long occupancy(Color color) {
+		return colorOccupancy[color.ordinal()];
+	}
+
+	public long occupancy(PieceType type) {
+		return typeOccupancy[type.ordinal()];
+	}
+
+	public long pieces(Color color, PieceType type) {
+		return colorOccupancy[color.ordinal()] & typeOccupancy[type.ordinal()];
+	}
+	
+	/*Peças da cor "by" que atacam a casa, calculadas a partir da própria casa: os
+	 raios de torre e bispo, os saltos de cavalo e rei e as diagonais de peão, com a
+	 ocupação fornecida (que pode ser diferente da atual, para testar lances)*/
+	public long attackersTo(int square, Color by, long occupied) {
+		long own = colorOccupancy[by.ordinal()];
+		long queens = typeOccupancy[PieceType.QUEEN.ordinal()];
+		return (Attacks.pawn(by == Color.WHITE ? Color.BLACK : Color.WHITE, square) & own & typeOccupancy[PieceType.PAWN.ordinal()])
+				| (Attacks.knight(square) & own & typeOccupancy[PieceType.KNIGHT.ordinal()])
+				| (Attacks.king(square) & own & typeOccupancy[PieceType.KING.ordinal()])
+				| (Attacks.bishop(square, occupied) & own & (typeOccupancy[PieceType.BISHOP.ordinal()] | queens))
+				| (Attacks.rook(square, occupied) & own & (typeOccupancy[PieceType.ROOK.ordinal()] | queens));
+	}
+	
+	//Testa se alguma peça da cor "by" ataca a casa, parando no primeiro tipo de ataque encontrado
+	public boolean isSquareAttacked(int square, Color by) {
+		long own = colorOccupancy[by.ordinal()];
+		if ((Attacks.knight(square) & own & typeOccupancy[PieceType.KNIGHT.ordinal()]) != 0) {
+			return true;
+		}
+		if ((Attacks.pawn(by == Color.WHITE ? Color.BLACK : Color.WHITE, square) & own & typeOccupancy[PieceType.PAWN.ordinal()]) != 0) {
+			return true;
+		}
+		if ((Attacks.king(square) & own & typeOccupancy[PieceType.KING.ordinal()]) != 0) {
+			return true;
+		}
+		long queens = typeOccupancy[PieceType.QUEEN.ordinal()];
+		long diagonal = own & (typeOccupancy[PieceType.BISHOP.ordinal()] | queens);
+		if (diagonal != 0 && (Attacks.bishop(square, occupied) & diagonal) != 0) {
+			return true;
+		}
+		long straight = own & (typeOccupancy[PieceType.ROOK.ordinal()] | queens);
+		return straight != 0 && (Attacks.rook(square, occupied) & straight) != 0;
+	}
+	
+	//Casa do rei da cor fornecida, ou -1 se não houver
+	public int kingSquare(Color color) {
+		long king = colorOccupancy[color.ordinal()] & typeOccupancy[PieceType.KING.ordinal()];
+		return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+	}
+}
@@ -1,43 +1,173 @@
 package chess;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 
-import boardgame.Board;
-import boardgame.Piece;
-import boardgame.Position;
+import boardgame.BoardException;
 import chess.pieces.Bishop;
 import chess.pieces.King;
 import chess.pieces.Knight;
 import chess.pieces.Pawn;
 import chess.pieces.Queen;
 import chess.pieces.Rook;
+import metrics.Metrics;
+import metrics.Timer;
 
 public class ChessMatch {
 
+	//Direitos de roque, guardados como bits em castlingRights
+	public static final int WHITE_KINGSIDE = 1;
+	public static final int WHITE_QUEENSIDE = 2;
+	public static final int BLACK_KINGSIDE = 4;
+	public static final int BLACK_QUEENSIDE = 8;
+	public static final int ALL_CASTLING = 15;
+	
+	//Para cada casa, os direitos de roque que sobram quando uma peça sai dela ou é capturada nela
+	private static final int[] CASTLING_MASK = new int[ChessBoard.SQUARES];
+	
+	static {
+		Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+		CASTLING_MASK[ChessBoard.square(7, 4)] &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+		CASTLING_MASK[ChessBoard.square(7, 7)] &= ~WHITE_KINGSIDE;
+		CASTLING_MASK[ChessBoard.square(7, 0)] &= ~WHITE_QUEENSIDE;
+		CASTLING_MASK[ChessBoard.square(0, 4)] &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+		CASTLING_MASK[ChessBoard.square(0, 7)] &= ~BLACK_KINGSIDE;
+		CASTLING_MASK[ChessBoard.square(0, 0)] &= ~BLACK_QUEENSIDE;
+	}
+	
+	private static final PieceType[] PIECE_TYPES = PieceType.values();
+	
+	/*Timers das operações públicas (ver Metrics). Cada uma delas só chama o timer
+	 se as métricas estiverem ligadas, e o corpo fica no método privado ao lado*/
+	private static final Timer PERFORM_CHESS_MOVE = Metrics.timer("performChessMove");
+	private static final Timer REPLACE_PROMOTED_PIECE = Metrics.timer("replacePromotedPiece");
+	private static final Timer MAKE_MOVE = Metrics.timer("makeMove");
+	private static final Timer UNDO_MOVE = Metrics.timer("undoMove");
+	private static final Timer TEST_CHECK = Metrics.timer("testCheck");
+	private static final Timer TEST_CHECK_MATE = Metrics.timer("testCheckMate");
+	
+	/*Capacidade inicial da pilha de desfazer; ela dobra quando a partida (ou a busca)
+	 passa disso. Pequena para que muitas partidas abertas ao mesmo tempo caibam na memória*/
+	private static final int INITIAL_HISTORY = 64;
+	
 	private int turn;
 	private Color currentPlayer;
-	private Board board;
+	private ChessBoard board;
 	private boolean check;
+	//Peças adversárias que dão xeque no rei do jogador atual, atualizadas a cada lance
+	private long checkers;
 	private boolean checkMate;
-	private ChessPiece enPassantVulnerable;
+	private int enPassantSquare = -1;
+	private int castlingRights;
+	private int halfmoveClock;
+	//Chave de Zobrist da posição, atualizada a cada peça que entra ou sai e a cada mudança de estado
+	private long key;
+	//Somas da avaliação (ver Evaluation), atualizadas junto com a chave a cada peça que entra, sai ou muda de casa
+	private int mgScore;
+	private int egScore;
+	private int phase;
 	private ChessPiece promoted;
 	
-	/*Essas so duas listas para manter o controle das peas que esto no tabuleiro ou
-	 fora dele (capturadas). As peas so adicionadas s listas nas situaes correspondentes,
-	 no placeNewPiece e no makeMove*/
-	 
-	private List<Piece> piecesOnTheBoard = new ArrayList<>();
-	private List<Piece> capturedPieces = new ArrayList<>();
+	/*Registro para manter o controle das peças que estão no tabuleiro, por cor e tipo.
+	 As peças são adicionadas e retiradas nas situações correspondentes, no placeNewPiece,
+	 no makeMove e no undoMove. As peças capturadas ficam na pilha de desfazer*/
+	
+	private PieceList piecesOnTheBoard = new PieceList();
+	
+	/*Pilha de desfazer: um registro por lance feito com o makeMove, com o lance,
+	 a peça capturada, o peão promovido (se houver) e o estado anterior compactado
+	 (casa de en passant, direitos de roque e regra dos 50 lances), a chave e as
+	 peças que davam xeque*/
+	private int ply;
+	private int[] historyMoves = new int[INITIAL_HISTORY];
+	private int[] historyStates = new int[INITIAL_HISTORY];
+	private long[] historyKeys = new long[INITIAL_HISTORY];
+	private long[] historyCheckers = new long[INITIAL_HISTORY];
+	private ChessPiece[] historyCaptured = new ChessPiece[INITIAL_HISTORY];
+	private ChessPiece[] historyPawns = new ChessPiece[INITIAL_HISTORY];
+	
+	//Peças de promoção desfeitas, reaproveitadas nas próximas promoções
+	private ChessPiece[] sparePieces = new ChessPiece[16];
+	private int spareCount;
+	
+	//Buffers reaproveitados pelo performChessMove e pelo hasLegalMove
+	private MoveList pieceMoves = new MoveList();
+	private MoveList legalMoves = new MoveList();
+	
+	//Último retrato tirado, devolvido de novo enquanto a posição não mudar
+	private Snapshot snapshot;
 	
 	public ChessMatch() {
-		board = new Board(8, 8);
+		board = new ChessBoard();
 		turn = 1;
 		currentPlayer = Color.WHITE;
+		castlingRights = ALL_CASTLING;
+		key = Zobrist.castling(castlingRights);
 		initialSetup();
 	}
 	
+	//Partida a partir de uma posição em FEN (ver Fen), com vez, roque, en passant e contadores
+	public ChessMatch(String fen) {
+		board = new ChessBoard();
+		Fen.read(fen, this);
+	}
+	
+	//Partida a partir de um retrato (ver Snapshot), sem lances para desfazer
+	public ChessMatch(Snapshot snapshot) {
+		board = new ChessBoard();
+		snapshot.restore(this);
+	}
+	
+	/*Cópia independente da partida: tabuleiro, peças, registro e pilha de desfazer
+	 são novos, então a cópia pode fazer e desfazer lances em outra thread sem
+	 tocar na original (inclusive desfazer lances feitos antes da cópia)*/
+	public ChessMatch(ChessMatch other) {
+		board = new ChessBoard();
+		turn = other.turn;
+		currentPlayer = other.currentPlayer;
+		check = other.check;
+		checkers = other.checkers;
+		checkMate = other.checkMate;
+		enPassantSquare = other.enPassantSquare;
+		castlingRights = other.castlingRights;
+		halfmoveClock = other.halfmoveClock;
+		key = other.key;
+		mgScore = other.mgScore;
+		egScore = other.egScore;
+		phase = other.phase;
+		
+		//Percorre o registro na mesma ordem, para a cópia gerar os lances na mesma ordem
+		for(Color color : Color.values()) {
+			for(PieceType type : PIECE_TYPES) {
+				for(int i = 0; i < other.piecesOnTheBoard.count(color, type); i++) {
+					ChessPiece p = other.piecesOnTheBoard.get(color, type, i);
+					ChessPiece copy = copyPiece(p);
+					board.placePiece(copy, p.getSquare());
+					piecesOnTheBoard.add(copy);
+				}
+			}
+		}
+		if(other.promoted != null) {
+			promoted = board.pieceAt(other.promoted.getSquare());
+		}
+		
+		ply = other.ply;
+		int capacity = other.historyMoves.length;
+		historyMoves = Arrays.copyOf(other.historyMoves, capacity);
+		historyStates = Arrays.copyOf(other.historyStates, capacity);
+		historyKeys = Arrays.copyOf(other.historyKeys, capacity);
+		historyCheckers = Arrays.copyOf(other.historyCheckers, capacity);
+		historyCaptured = new ChessPiece[capacity];
+		historyPawns = new ChessPiece[capacity];
+		for(int i = 0; i < ply; i++) {
+			if(other.historyCaptured[i] != null) {
+				historyCaptured[i] = copyPiece(other.historyCaptured[i]);
+			}
+			if(other.historyPawns[i] != null) {
+				historyPawns[i] = copyPiece(other.historyPawns[i]);
+			}
+		}
+	}
+	
 	public int getTurn() {
 		return turn;
 	}
@@ -46,92 +176,427 @@ public class ChessMatch {
 		return currentPlayer;
 	}
 	
+	//Tabuleiro com as máscaras de ocupação, para consulta (a partida é quem o altera)
+	public ChessBoard getBoard() {
+		return board;
+	}
+	
 	public boolean getCheck() {
 		return check;
 	}
 	
+	//Máscara das peças que dão xeque no jogador atual
+	public long getCheckers() {
+		return checkers;
+	}
+	
 	public boolean getCheckMate() {
 		return checkMate;
 	}
 	
+	//Retorna o peão que pode ser capturado en passant neste lance, se houver
 	public ChessPiece getEnPassantVulnerable() {
-		return enPassantVulnerable;
+		if(enPassantSquare < 0) {
+			return null;
+		}
+		return board.pieceAt(enPassantSquare + (currentPlayer == Color.WHITE ? 8 : -8));
+	}
+	
+	//Casa para onde o peão que captura en passant se move, ou -1
+	public int getEnPassantSquare() {
+		return enPassantSquare;
+	}
+	
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+	
+	//Lances desde a última captura ou lance de peão
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+	
+	public long getKey() {
+		return key;
+	}
+	
+	/*Chave sem a coluna de en passant quando nenhuma captura en passant é legal (a
+	 regra do Polyglot), para que as transposições que só diferem por um avanço
+	 duplo sem captura possível, e o FEN com "-", tenham a mesma chave. Usada pelo
+	 livro de aberturas*/
+	public long getBookKey() {
+		if(enPassantSquare < 0) {
+			return key;
+		}
+		long pawns = board.pieces(currentPlayer, PieceType.PAWN) & Attacks.pawn(opponent(currentPlayer), enPassantSquare);
+		while(pawns != 0) {
+			int from = Long.numberOfTrailingZeros(pawns);
+			pawns &= pawns - 1;
+			if(isLegal(Move.of(from, enPassantSquare, Move.EN_PASSANT))) {
+				return key;
+			}
+		}
+		return key ^ Zobrist.enPassant(enPassantSquare);
+	}
+	
+	/*Avaliação estática da posição, em centipeões, do ponto de vista do jogador
+	 atual. Não percorre o tabuleiro: só interpola as somas mantidas pelos lances*/
+	public int evaluate() {
+		int score = Evaluation.taper(mgScore, egScore, phase);
+		return currentPlayer == Color.WHITE ? score : -score;
+	}
+	
+	/*Testa se a posição atual já ocorreu desde o último lance irreversível (captura
+	 ou lance de peão), comparando com as chaves guardadas na pilha de desfazer*/
+	public boolean isRepetition() {
+		int limit = Math.max(0, ply - halfmoveClock);
+		for(int i = ply - 2; i >= limit; i -= 2) {
+			if(historyKeys[i] == key) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/*Retrato imutável da posição atual, que pode ser passado para outras threads.
+	 Chamadas seguidas sem lances no meio devolvem o mesmo objeto*/
+	public Snapshot snapshot() {
+		Snapshot s = snapshot;
+		if(s == null || s.getKey() != key || s.getTurn() != turn || s.getHalfmoveClock() != halfmoveClock) {
+			s = new Snapshot(this);
+			snapshot = s;
+		}
+		return s;
+	}
+	
+	//Quantidade de lances na pilha de desfazer
+	public int getPly() {
+		return ply;
+	}
+	
+	//Lance feito na posição index da pilha (0 é o primeiro), já com a peça escolhida na promoção
+	public int getMove(int index) {
+		if(index < 0 || index >= ply) {
+			throw new IndexOutOfBoundsException("Move " + index + " of " + ply);
+		}
+		return historyMoves[index];
 	}
 	
 	public ChessPiece getPromoted() {
 		return promoted;
 	}
-		
-	//Retorna uma matriz de peas de xadrez
+	
+	//A posição atual em FEN
+	public String toFen() {
+		return Fen.write(this);
+	}
+	
+	//Retorna uma matriz de peças de xadrez
 	public ChessPiece[][] getPieces(){
 		ChessPiece[][] mat = new ChessPiece[board.getRows()][board.getColumns()];
 		for(int i = 0; i < board.getRows(); i++) {
 			for(int j = 0; j < board.getColumns(); j++) {
-				mat[i][j] = (ChessPiece) board.piece(i, j);
+				mat[i][j] = board.pieceAt(ChessBoard.square(i, j));
 			}
 		}
 		return mat;
 	}
 	
-	//Retorna matriz de boolean com movimentos possveis, para colorir eles
+	//Retorna matriz de boolean com movimentos possíveis, para colorir eles
 	public boolean[][] possibleMoves(ChessPosition sourcePosition){
-		Position position = sourcePosition.toPosition();
-		validateSourcePosition(position);
-		return board.piece(position).possibleMoves();
+		return possibleMoves(sourcePosition.getSquare());
+	}
+	
+	public boolean[][] possibleMoves(int sourceSquare){
+		validateSourcePosition(sourceSquare);
+		return board.pieceAt(sourceSquare).possibleMoves();
+	}
+	
+	//Gera no buffer os lances pseudo-legais de todas as peças do jogador atual
+	public void generateMoves(MoveList moves) {
+		generateMoves(currentPlayer, moves);
+	}
+	
+	//Percorre o registro de peças da cor, tipo por tipo, sem stream nem lista intermediária
+	private void generateMoves(Color color, MoveList moves) {
+		moves.clear();
+		for(PieceType type : PIECE_TYPES) {
+			for(int i = 0; i < piecesOnTheBoard.count(color, type); i++) {
+				piecesOnTheBoard.get(color, type, i).generateMoves(moves);
+			}
+		}
+	}
+	
+	/*Gera no buffer só os lances legais do jogador atual, sem fazer e desfazer cada
+	 um: em xeque duplo só o rei pode mexer, em xeque simples as outras peças precisam
+	 capturar quem dá xeque ou se pôr no caminho, e uma peça cravada só anda na linha
+	 entre o rei e a peça que a crava*/
+	public void generateLegalMoves(MoveList moves) {
+		generateLegalMoves(moves, false);
+	}
+	
+	//Testa se o jogador atual tem algum lance legal, parando no primeiro encontrado
+	public boolean hasLegalMove() {
+		return generateLegalMoves(legalMoves, true);
+	}
+	
+	private boolean generateLegalMoves(MoveList moves, boolean stopAtFirst) {
+		moves.clear();
+		int kingSquare = king(currentPlayer).getSquare();
+		long pinned = pinnedPieces(kingSquare);
+		long evasions = evasionMask(kingSquare);
+		for(PieceType type : PIECE_TYPES) {
+			//Em xeque duplo nenhuma outra peça resolve
+			if(evasions == 0 && type != PieceType.KING) {
+				continue;
+			}
+			for(int i = 0; i < piecesOnTheBoard.count(currentPlayer, type); i++) {
+				//Gera os lances pseudo-legais da peça e mantém só os legais, no próprio buffer
+				int start = moves.size();
+				piecesOnTheBoard.get(currentPlayer, type, i).generateMoves(moves);
+				int end = start;
+				for(int j = start; j < moves.size(); j++) {
+					int move = moves.get(j);
+					if(isLegal(move, kingSquare, pinned, evasions)) {
+						moves.set(end++, move);
+					}
+				}
+				moves.truncate(end);
+				if(stopAtFirst && end > 0) {
+					return true;
+				}
+			}
+		}
+		return !moves.isEmpty();
+	}
+	
+	/*Lance legal do jogador atual da casa from para a casa to, ou Move.NONE se não
+	 houver. Recupera as flags (captura, roque, en passant) que a origem, o destino
+	 e a peça da promoção não dizem; promotion deve ser null se não for promoção*/
+	public int findMove(int from, int to, PieceType promotion) {
+		ChessPiece piece = board.pieceAt(from);
+		if(piece == null || piece.getColor() != currentPlayer) {
+			return Move.NONE;
+		}
+		MoveList moves = pieceMoves;
+		moves.clear();
+		piece.generateMoves(moves);
+		for(int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			if(Move.to(move) == to && Move.promotion(move) == promotion) {
+				return isLegal(move) ? move : Move.NONE;
+			}
+		}
+		return Move.NONE;
+	}
+	
+	/*Valida e faz, em sequência, count lances a partir de moves[offset], no formato
+	 de Move (as flags não precisam vir certas: o lance é procurado pela origem,
+	 destino e promoção, como no findMove). Para no primeiro lance ilegal, sem lançar
+	 exceção e sem alocar, e deixa em result o índice e o motivo dele ou, se todos
+	 foram feitos, a situação final. Os lances feitos ficam na partida (o undoMove
+	 desfaz). Retorna true se todos foram feitos*/
+	public boolean playMoves(int[] moves, int offset, int count, MoveCheck result) {
+		return playMoves(moves, offset, count, false, result);
+	}
+	
+	//O mesmo que o playMoves, com os lances na forma compacta (ver Move.compact), a do GameArchive
+	public boolean playCompactMoves(int[] moves, int offset, int count, MoveCheck result) {
+		return playMoves(moves, offset, count, true, result);
+	}
+	
+	private boolean playMoves(int[] moves, int offset, int count, boolean compact, MoveCheck result) {
+		int i = 0;
+		MoveCheck.Reason reason = MoveCheck.Reason.OK;
+		for(; i < count; i++) {
+			int encoded = moves[offset + i];
+			int p = compact ? encoded >>> 12 : encoded >>> 16;
+			if(p != 0 && (p < PieceType.KNIGHT.ordinal() || p > PieceType.QUEEN.ordinal())) {
+				reason = MoveCheck.Reason.INVALID_ENCODING;
+				break;
+			}
+			int from = Move.from(encoded);
+			int to = Move.to(encoded);
+			PieceType promotion = p == 0 ? null : PIECE_TYPES[p];
+			int move = findMove(from, to, promotion);
+			if(move == Move.NONE) {
+				reason = rejection(from, to, promotion);
+				break;
+			}
+			makeMove(move);
+		}
+		//Como no performChessMove, o checkMate passa a valer para a posição final
+		MoveCheck.State state = state();
+		checkMate = state == MoveCheck.State.CHECKMATE;
+		if(reason != MoveCheck.Reason.OK) {
+			result.reject(i, moves[offset + i], reason, state);
+			return false;
+		}
+		result.accept(count, state);
+		return true;
+	}
+	
+	//Motivo de não haver lance legal de from para to; só roda na recusa
+	private MoveCheck.Reason rejection(int from, int to, PieceType promotion) {
+		if(!hasLegalMove()) {
+			return MoveCheck.Reason.GAME_OVER;
+		}
+		ChessPiece piece = board.pieceAt(from);
+		if(piece == null) {
+			return MoveCheck.Reason.NO_PIECE;
+		}
+		if(piece.getColor() != currentPlayer) {
+			return MoveCheck.Reason.NOT_YOUR_PIECE;
+		}
+		MoveList moves = pieceMoves;
+		moves.clear();
+		piece.generateMoves(moves);
+		for(int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			if(Move.to(move) == to && Move.promotion(move) == promotion) {
+				return MoveCheck.Reason.LEAVES_KING_IN_CHECK;
+			}
+		}
+		return MoveCheck.Reason.CANNOT_MOVE_THERE;
+	}
+	
+	private MoveCheck.State state() {
+		if(hasLegalMove()) {
+			return check ? MoveCheck.State.CHECK : MoveCheck.State.PLAYING;
+		}
+		return check ? MoveCheck.State.CHECKMATE : MoveCheck.State.STALEMATE;
+	}
+	
+	//Testa se um lance pseudo-legal do jogador atual não deixa o próprio rei em xeque
+	public boolean isLegal(int move) {
+		int kingSquare = king(currentPlayer).getSquare();
+		return isLegal(move, kingSquare, pinnedPieces(kingSquare), evasionMask(kingSquare));
+	}
+	
+	private boolean isLegal(int move, int kingSquare, long pinned, long evasions) {
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int flags = Move.flags(move);
+		Color opponent = opponent(currentPlayer);
+		if(from == kingSquare) {
+			//ROQUE: o rei não pode passar nem parar numa casa atacada (o xeque já foi testado na geração)
+			if((flags & Move.CASTLING) != 0) {
+				return !board.isSquareAttacked(to > from ? from + 1 : from - 1, opponent)
+						&& !board.isSquareAttacked(to, opponent);
+			}
+			//Tira o rei da ocupação para que ele não "proteja" a casa atrás dele no raio de quem dá xeque
+			return board.attackersTo(to, opponent, board.occupied() ^ ChessBoard.bit(from)) == 0;
+		}
+		/*EN PASSANT: dois peões saem da mesma linha de uma vez, o que pode descobrir
+		 um xeque que a cravada não vê; simula a ocupação depois do lance*/
+		if((flags & Move.EN_PASSANT) != 0) {
+			long captured = ChessBoard.bit(to + (currentPlayer == Color.WHITE ? 8 : -8));
+			long occupied = (board.occupied() ^ ChessBoard.bit(from) ^ captured) | ChessBoard.bit(to);
+			return (board.attackersTo(kingSquare, opponent, occupied) & ~captured) == 0;
+		}
+		long target = ChessBoard.bit(to);
+		return (evasions & target) != 0
+				&& ((pinned & ChessBoard.bit(from)) == 0 || (Attacks.line(kingSquare, from) & target) != 0);
+	}
+	
+	//Peças do jogador atual que são a única entre o rei e uma torre, bispo ou dama adversária
+	private long pinnedPieces(int kingSquare) {
+		Color opponent = opponent(currentPlayer);
+		long queens = board.pieces(opponent, PieceType.QUEEN);
+		long snipers = (Attacks.rook(kingSquare, 0L) & (board.pieces(opponent, PieceType.ROOK) | queens))
+				| (Attacks.bishop(kingSquare, 0L) & (board.pieces(opponent, PieceType.BISHOP) | queens));
+		long occupied = board.occupied();
+		long pinned = 0L;
+		while(snipers != 0) {
+			int sniper = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			long blockers = Attacks.between(kingSquare, sniper) & occupied;
+			if(blockers != 0 && (blockers & (blockers - 1)) == 0) {
+				pinned |= blockers & board.occupancy(currentPlayer);
+			}
+		}
+		return pinned;
+	}
+	
+	//Casas para onde as peças (menos o rei) podem ir: todas sem xeque, nenhuma em xeque duplo
+	private long evasionMask(int kingSquare) {
+		if(checkers == 0) {
+			return -1L;
+		}
+		if((checkers & (checkers - 1)) != 0) {
+			return 0L;
+		}
+		return checkers | Attacks.between(kingSquare, Long.numberOfTrailingZeros(checkers));
 	}
 	
-	//Retorna a pea que estava na posio target, aps realizar o movimento
+	//Gera no buffer os lances pseudo-legais da peça na posição fornecida
+	public void generateMoves(ChessPosition sourcePosition, MoveList moves) {
+		generateMoves(sourcePosition.getSquare(), moves);
+	}
+	
+	//O mesmo, com a casa de origem como índice (0..63)
+	public void generateMoves(int sourceSquare, MoveList moves) {
+		validateSourcePosition(sourceSquare);
+		moves.clear();
+		board.pieceAt(sourceSquare).generateMoves(moves);
+	}
+	
+	//Retorna a peça que estava na posição target, após realizar o movimento
 	public ChessPiece performChessMove(ChessPosition sourcePosition, ChessPosition targetPosition) {
-		Position source = sourcePosition.toPosition();
-		Position target = targetPosition.toPosition();
-		validateSourcePosition(source);
-		validateTargetPosition(source, target);
-		Piece capturedPiece = makeMove(source, target);
-		
-		
+		return performChessMove(sourcePosition.getSquare(), targetPosition.getSquare());
+	}
+	
+	//O mesmo, com as casas como índices (0..63)
+	public ChessPiece performChessMove(int sourceSquare, int targetSquare) {
+		if(!Metrics.ENABLED) {
+			return playChessMove(sourceSquare, targetSquare);
+		}
+		long start = PERFORM_CHESS_MOVE.start();
+		try {
+			return playChessMove(sourceSquare, targetSquare);
+		}
+		finally {
+			PERFORM_CHESS_MOVE.stop(start);
+		}
+	}
+	
+	private ChessPiece playChessMove(int sourceSquare, int targetSquare) {
+		validateSourcePosition(sourceSquare);
+		int move = validateTargetPosition(sourceSquare, targetSquare);
 		
-		//Testa se o jogador atual se ps em xeque, desfazendo o movimento se for o caso
-		if(testCheck(currentPlayer)) {
-			undoMove(source, target, capturedPiece);
+		//Testa se o jogador se poria em xeque antes de fazer o movimento
+		if(!isLegal(move)) {
 			throw new ChessException("You can't put yourself in check!");
 		}
+		makeMove(move);
 		
-		ChessPiece movedPiece = (ChessPiece)board.piece(target);
-		
-		/*JOGADA ESPECIAL PROMOTION: o peo que atinge o lado adversrio se 
-		 * transforma numa pea mais poderosa */
-		promoted = null;
-		//Verifica se  peo e se chegou ao final
-		if(movedPiece instanceof Pawn) {
-			if((movedPiece.getColor() == Color.WHITE && target.getRow() == 0) || (movedPiece.getColor() == Color.BLACK && target.getRow() == 7)) {
-				promoted = (ChessPiece)board.piece(target);
-				promoted = replacePromotedPiece("Q");
-			}
-		}
-
-		//Se o oponente ficar em cheque, atualiza o atributo check para true
-		check = (testCheck(opponent(currentPlayer))) ? true : false;
+		/*JOGADA ESPECIAL PROMOTION: o peão que atinge o lado adversário se 
+		 * transforma numa peça mais poderosa. O makeMove já promove para dama,
+		 * o jogador pode trocar depois com o replacePromotedPiece */
+		promoted = Move.isPromotion(move) ? board.pieceAt(Move.to(move)) : null;
 		
-		//Antes de mudar o turno, verifica se houve checkMate
-		if (testCheckMate(opponent(currentPlayer))) {
+		//O makeMove já passou a vez e atualizou o check do oponente; verifica se houve checkMate
+		if (testCheckMate(currentPlayer)) {
 			checkMate = true;
 		}
-		else {
-			nextTurn();
+		return historyCaptured[ply - 1];
+	}
+	
+	//Método responsável por substituir o peão em PROMOTION
+	public ChessPiece replacePromotedPiece(String type) {
+		if(!Metrics.ENABLED) {
+			return replacePromoted(type);
 		}
-		
-		//EN PASSANT
-		if(movedPiece instanceof Pawn && (target.getRow()) == source.getRow() - 2 || target.getRow() == source.getRow() + 2){
-			enPassantVulnerable = movedPiece;
+		long start = REPLACE_PROMOTED_PIECE.start();
+		try {
+			return replacePromoted(type);
 		}
-		else {
-			enPassantVulnerable = null;
+		finally {
+			REPLACE_PROMOTED_PIECE.stop(start);
 		}
-		return (ChessPiece) capturedPiece;
 	}
 	
-	//Mtodo responsvel por substituir o peo em PROMOTION
-	public ChessPiece replacePromotedPiece(String type) {
+	private ChessPiece replacePromoted(String type) {
 		if(promoted == null) {
 			throw new IllegalStateException("There is no piece to be promoted");
 		}
@@ -139,220 +604,435 @@ public class ChessMatch {
 			return promoted;
 		}
 		
-		Position pos = promoted.getChessPosition().toPosition();
-		Piece p = board.removePiece(pos);
-		piecesOnTheBoard.remove(p);
+		int square = promoted.getSquare();
+		ChessPiece p = takePiece(square);
+		releasePiece(p);
 		
-		ChessPiece newPiece = newPiece(type, promoted.getColor());
-		board.placePiece(newPiece, pos);
-		piecesOnTheBoard.add(newPiece);
+		ChessPiece newPiece = newPiece(pieceType(type), promoted.getColor());
+		putPiece(newPiece, square);
+		
+		//Corrige o lance na pilha para que o undoMove e o histórico reflitam a peça escolhida
+		int move = historyMoves[ply - 1];
+		historyMoves[ply - 1] = Move.of(Move.from(move), Move.to(move), Move.flags(move), newPiece.getType());
+		promoted = newPiece;
+		
+		//A peça nova pode dar (ou deixar de dar) xeque de outro jeito que a dama
+		updateCheckers();
+		checkMate = testCheckMate(currentPlayer);
 		
 		return newPiece;
 	}
 	
-	private ChessPiece newPiece(String type, Color color) {
-		if(type.equals("B")) return new Bishop(board, color);
-		if(type.equals("N")) return new Knight(board, color);
-		if(type.equals("Q")) return new Queen(board, color);
+	private PieceType pieceType(String type) {
+		if(type.equals("B")) return PieceType.BISHOP;
+		if(type.equals("N")) return PieceType.KNIGHT;
+		if(type.equals("Q")) return PieceType.QUEEN;
+		else return PieceType.ROOK;
+	}
+	
+	//Reaproveita uma peça de promoção desfeita, criando uma nova só se não houver
+	private ChessPiece newPiece(PieceType type, Color color) {
+		for(int i = 0; i < spareCount; i++) {
+			ChessPiece p = sparePieces[i];
+			if(p.getType() == type && p.getColor() == color) {
+				sparePieces[i] = sparePieces[--spareCount];
+				sparePieces[spareCount] = null;
+				return p;
+			}
+		}
+		if(type == PieceType.BISHOP) return new Bishop(board, color);
+		if(type == PieceType.KNIGHT) return new Knight(board, color);
+		if(type == PieceType.QUEEN) return new Queen(board, color);
 		else return new Rook(board, color);
 	}
 	
+	//Nova peça igual à fornecida (tipo, cor e número de movimentos), ligada a esta partida
+	private ChessPiece copyPiece(ChessPiece piece) {
+		ChessPiece copy;
+		if(piece.getType() == PieceType.PAWN) copy = new Pawn(board, piece.getColor(), this);
+		else if(piece.getType() == PieceType.KING) copy = new King(board, piece.getColor(), this);
+		else copy = newPiece(piece.getType(), piece.getColor());
+		copy.setMoveCount(piece.getMoveCount());
+		return copy;
+	}
+	
+	private void releasePiece(ChessPiece piece) {
+		if(spareCount == sparePieces.length) {
+			sparePieces = Arrays.copyOf(sparePieces, spareCount * 2);
+		}
+		sparePieces[spareCount++] = piece;
+	}
 	
 	/*
-	 Retira a pea da posio de origem e guarda em p, remove a pea em traget 
-	 e guarda em capturedPiece, posiciona p em target
+	 Faz o lance (no formato de Move) para o jogador atual, empilhando o que for
+	 preciso para o undoMove desfazê-lo. Não testa se o lance deixa o próprio rei
+	 em xeque: quem chama deve usar lances do generateLegalMoves ou testar com o isLegal. Pode ser chamado em sequência
+	 para qualquer profundidade, sem alocar
 	 */
-	private Piece makeMove(Position source, Position target) {
-		ChessPiece p = (ChessPiece) board.removePiece(source);
-		p.increaseMoveCount();
-		Piece capturedPiece = board.removePiece(target);
-		board.placePiece(p, target);
+	public void makeMove(int move) {
+		if(!Metrics.ENABLED) {
+			applyMove(move);
+			return;
+		}
+		long start = MAKE_MOVE.start();
+		try {
+			applyMove(move);
+		}
+		finally {
+			MAKE_MOVE.stop(start);
+		}
+	}
+	
+	private void applyMove(int move) {
+		if(ply == historyMoves.length) {
+			growHistory();
+		}
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int flags = Move.flags(move);
 		
-		if(capturedPiece != null) {
-			piecesOnTheBoard.remove(capturedPiece);
-			capturedPieces.add(capturedPiece);
-		}	
+		historyMoves[ply] = move;
+		historyStates[ply] = packState();
+		historyKeys[ply] = key;
+		historyCheckers[ply] = checkers;
+		historyPawns[ply] = null;
 		
-		// roque pequeno
-		//verifica se foi um roque pequeno, vendo se o rei moveu duas casas  direita
-		if(p instanceof King && target.getColumn() == source.getColumn() + 2) {
-			Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-			Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-			//Retira a torre e a posiciona na posio de destino (ao lado do rei)
-			ChessPiece rook = (ChessPiece)board.removePiece(sourceT);
-			board.placePiece(rook, targetT);
-			rook.increaseMoveCount();
+		ChessPiece capturedPiece;
+		//EN PASSANT: o peão capturado está atrás da casa de destino
+		if((flags & Move.EN_PASSANT) != 0) {
+			capturedPiece = takePiece(to + (currentPlayer == Color.WHITE ? 8 : -8));
+		}
+		else {
+			capturedPiece = board.isOccupied(to) ? takePiece(to) : null;
+		}
+		historyCaptured[ply] = capturedPiece;
+		
+		ChessPiece p;
+		if(Move.isPromotion(move)) {
+			p = takePiece(from);
+			historyPawns[ply] = p;
+			putPiece(newPiece(Move.promotion(move), p.getColor()), to);
+		}
+		else {
+			p = movePiece(from, to);
 		}
+		p.increaseMoveCount();
 		
-		// roque grande
-		//verifica se foi um roque grande, vendo se o rei moveu duas casas  esquerda
-		if(p instanceof King && target.getColumn() == source.getColumn() - 2) {
-			Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-			Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-			//Retira a torre e a posiciona na posio de destino (ao lado do rei)
-			ChessPiece rook = (ChessPiece)board.removePiece(sourceT);
-			board.placePiece(rook, targetT);
+		// roque: o rei moveu duas casas, a torre vai para a casa ao lado dele
+		if((flags & Move.CASTLING) != 0) {
+			// roque pequeno se o rei foi para a direita, roque grande se foi para a esquerda
+			int rookFrom = to > from ? from + 3 : from - 4;
+			int rookTo = to > from ? from + 1 : from - 1;
+			ChessPiece rook = movePiece(rookFrom, rookTo);
 			rook.increaseMoveCount();
 		}
 		
-		//EN PASSANT
-		//verifica se foi en passant, vendo se andou na diagonal para casa vazia
-		if(p instanceof Pawn) {
-			if(source.getColumn() != target.getColumn() && capturedPiece == null) {
-				Position pawnPosition;
-				if(p.getColor() == Color.WHITE) {
-					pawnPosition = new Position(target.getRow() + 1, target.getColumn());
-				}
-				else {
-					pawnPosition = new Position(target.getRow() - 1, target.getColumn());
-				}
-				capturedPiece = board.removePiece(pawnPosition);
-				capturedPieces.add(capturedPiece);
-				piecesOnTheBoard.remove(capturedPiece);
-			}
+		//Tira da chave os direitos de roque e o en passant antigos e coloca os novos
+		key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+		castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+		enPassantSquare = (flags & Move.DOUBLE_PUSH) != 0 ? (from + to) / 2 : -1;
+		key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare) ^ Zobrist.blackToMove();
+		halfmoveClock = (p instanceof Pawn || capturedPiece != null) ? 0 : halfmoveClock + 1;
+		
+		ply++;
+		nextTurn();
+		updateCheckers();
+	}
+	
+	//Desfaz o último lance feito com o makeMove, restaurando o estado empilhado
+	public void undoMove() {
+		if(!Metrics.ENABLED) {
+			revertMove();
+			return;
+		}
+		long start = UNDO_MOVE.start();
+		try {
+			revertMove();
+		}
+		finally {
+			UNDO_MOVE.stop(start);
 		}
-			
-		return capturedPiece;
 	}
 	
-	//Desfaz o movimento, o inverso do makeMove (usado na lgica de xeque)
-	private void undoMove(Position source, Position target, Piece capturedPiece) {
-		ChessPiece p = (ChessPiece)board.removePiece(target);
-		p.decreaseMoveCount();
-		board.placePiece(p, source);
-		if(capturedPiece != null) {
-			board.placePiece(capturedPiece, target);
-			capturedPieces.remove(capturedPiece);
-			piecesOnTheBoard.add(capturedPiece);
+	private void revertMove() {
+		if(ply == 0) {
+			throw new IllegalStateException("There is no move to undo");
 		}
+		ply--;
+		previousTurn();
+		int move = historyMoves[ply];
+		int from = Move.from(move);
+		int to = Move.to(move);
+		int flags = Move.flags(move);
 		
-		// desfaz roque pequeno
-		if(p instanceof King && target.getColumn() == source.getColumn() + 2) {
-			Position sourceT = new Position(source.getRow(), source.getColumn() + 3);
-			Position targetT = new Position(source.getRow(), source.getColumn() + 1);
-			ChessPiece rook = (ChessPiece)board.removePiece(targetT);
-			board.placePiece(rook, sourceT);
-			rook.decreaseMoveCount();
+		ChessPiece p;
+		if(Move.isPromotion(move)) {
+			releasePiece(takePiece(to));
+			p = historyPawns[ply];
+			historyPawns[ply] = null;
+			putPiece(p, from);
+		}
+		else {
+			p = movePiece(to, from);
 		}
+		p.decreaseMoveCount();
 		
-		// desfaz roque grande
-		if(p instanceof King && target.getColumn() == source.getColumn() - 2) {
-			Position sourceT = new Position(source.getRow(), source.getColumn() - 4);
-			Position targetT = new Position(source.getRow(), source.getColumn() - 1);
-			ChessPiece rook = (ChessPiece)board.removePiece(targetT);
-			board.placePiece(rook, sourceT);
+		// desfaz o roque
+		if((flags & Move.CASTLING) != 0) {
+			int rookFrom = to > from ? from + 3 : from - 4;
+			int rookTo = to > from ? from + 1 : from - 1;
+			ChessPiece rook = movePiece(rookTo, rookFrom);
 			rook.decreaseMoveCount();
 		}
-		//EN PASSANT
-		//verifica se foi en passant, vendo se andou na diagonal para casa vazia
-		if(p instanceof Pawn) {
-			if(source.getColumn() != target.getColumn() && capturedPiece == enPassantVulnerable) {
-				ChessPiece pawn = (ChessPiece)board.removePiece(target);
-				Position pawnPosition;
-				if(p.getColor() == Color.WHITE) {
-					pawnPosition = new Position(3, target.getColumn());
-				}
-				else {
-					pawnPosition = new Position(4, target.getColumn());
-				}
-				board.placePiece(pawn, pawnPosition);
-			}
+		
+		ChessPiece capturedPiece = historyCaptured[ply];
+		if(capturedPiece != null) {
+			historyCaptured[ply] = null;
+			//EN PASSANT: devolve o peão para trás da casa de destino
+			putPiece(capturedPiece, (flags & Move.EN_PASSANT) != 0 ? to + (currentPlayer == Color.WHITE ? 8 : -8) : to);
 		}
+		key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare) ^ Zobrist.blackToMove();
+		unpackState(historyStates[ply]);
+		checkers = historyCheckers[ply];
+		check = checkers != 0;
+		key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+	}
+	
+	//Olha a partir do rei de quem vai jogar quais peças adversárias o atacam
+	private void updateCheckers() {
+		int kingSquare = board.kingSquare(currentPlayer);
+		checkers = kingSquare < 0 ? 0L : board.attackersTo(kingSquare, opponent(currentPlayer), board.occupied());
+		check = checkers != 0;
+	}
+	
+	//Compacta o estado que o lance altera: en passant (6 bits + 1), roque (4) e regra dos 50 lances
+	private int packState() {
+		return (enPassantSquare + 1) | (castlingRights << 7) | (halfmoveClock << 11);
+	}
+	
+	private void unpackState(int state) {
+		enPassantSquare = (state & 127) - 1;
+		castlingRights = (state >>> 7) & 15;
+		halfmoveClock = state >>> 11;
+	}
+	
+	private void growHistory() {
+		int capacity = historyMoves.length * 2;
+		historyMoves = Arrays.copyOf(historyMoves, capacity);
+		historyStates = Arrays.copyOf(historyStates, capacity);
+		historyKeys = Arrays.copyOf(historyKeys, capacity);
+		historyCheckers = Arrays.copyOf(historyCheckers, capacity);
+		historyCaptured = Arrays.copyOf(historyCaptured, capacity);
+		historyPawns = Arrays.copyOf(historyPawns, capacity);
+	}
+	
+	//Coloca no tabuleiro uma peça que estava fora dele
+	private void putPiece(ChessPiece piece, int square) {
+		board.placePiece(piece, square);
+		piecesOnTheBoard.add(piece);
+		key ^= Zobrist.piece(piece, square);
+		mgScore += Evaluation.mg(piece, square);
+		egScore += Evaluation.eg(piece, square);
+		phase += Evaluation.phase(piece.getType());
 	}
 	
-	//Testa as condies para que a pea possa ser movida
-	private void validateSourcePosition(Position position) {
-		if(!board.thereIsAPiece(position)) {
+	//Retira do tabuleiro a peça da casa fornecida
+	private ChessPiece takePiece(int square) {
+		ChessPiece piece = board.removePiece(square);
+		piecesOnTheBoard.remove(piece);
+		key ^= Zobrist.piece(piece, square);
+		mgScore -= Evaluation.mg(piece, square);
+		egScore -= Evaluation.eg(piece, square);
+		phase -= Evaluation.phase(piece.getType());
+		return piece;
+	}
+	
+	//Muda uma peça de casa sem tirá-la da lista de peças
+	private ChessPiece movePiece(int from, int to) {
+		ChessPiece piece = board.removePiece(from);
+		board.placePiece(piece, to);
+		key ^= Zobrist.piece(piece, from) ^ Zobrist.piece(piece, to);
+		mgScore += Evaluation.mg(piece, to) - Evaluation.mg(piece, from);
+		egScore += Evaluation.eg(piece, to) - Evaluation.eg(piece, from);
+		return piece;
+	}
+	
+	//Testa as condições para que a peça possa ser movida
+	private void validateSourcePosition(int square) {
+		validateSquare(square);
+		ChessPiece piece = board.pieceAt(square);
+		if(piece == null) {
 			throw new ChessException("There is no piece on source position");
 		}
-		if(currentPlayer != ((ChessPiece)board.piece(position)).getColor()) {
-			//Verifica se a pea selecionada  da cor do jogador atual
+		if(currentPlayer != piece.getColor()) {
+			//Verifica se a peça selecionada é da cor do jogador atual
 			throw new ChessException("The chosen piece is not yours");
 		}
-		if(!board.piece(position).isThereAnyPossibleMove( )) {
+		if(!piece.isThereAnyPossibleMove( )) {
 			throw new ChessException("There is no possible moves");
 		}
 	}
 	
-	private void validateTargetPosition(Position source, Position target) {
-		if (!board.piece(source).possibleMove(target)) {
-			throw new ChessException("The chosen piece can't move to target position");
+	//Retorna o lance da peça até a posição target (na promoção, o primeiro gerado é o da dama)
+	private int validateTargetPosition(int source, int to) {
+		validateSquare(to);
+		MoveList moves = pieceMoves;
+		moves.clear();
+		board.pieceAt(source).generateMoves(moves);
+		for(int i = 0; i < moves.size(); i++) {
+			if(Move.to(moves.get(i)) == to) {
+				return moves.get(i);
+			}
+		}
+		throw new ChessException("The chosen piece can't move to target position");
+	}
+	
+	private void validateSquare(int square) {
+		if(square < 0 || square >= ChessBoard.SQUARES) {
+			throw new BoardException("Position not on the board");
 		}
 	}
 	
-	//Troca de turno com uma expresso ternria
+	//Troca de turno com uma expressão ternária
 	private void nextTurn() {
 		turn++;
 		currentPlayer = (currentPlayer == Color.WHITE ? Color.BLACK : Color.WHITE); 
 	}
 	
+	private void previousTurn() {
+		turn--;
+		currentPlayer = (currentPlayer == Color.WHITE ? Color.BLACK : Color.WHITE); 
+	}
+	
 	//Retorna a cor do oponente
 	public Color opponent(Color color) {
 		return (color == Color.WHITE ? Color.BLACK : Color.WHITE);
 	}
 	
-	//Retorna o rei da cor fornecida como parmetro
+	//Retorna o rei da cor fornecida como parâmetro, direto do registro de peças
 	private ChessPiece king(Color color) {
-		List<Piece> list = piecesOnTheBoard.stream().filter(x -> ((ChessPiece)x).getColor() == color).collect(Collectors.toList());
-		for(Piece p : list) {
-			if (p instanceof King) {
-				return (ChessPiece) p;
-			}
+		ChessPiece king = piecesOnTheBoard.king(color);
+		if(king == null) {
+			throw new IllegalStateException("There is no " + color + " king on the board");
 		}
-		throw new IllegalStateException("There is no " + color + "king on the board");
+		return king;
 	}
 	
-	private boolean testCheck(Color color) {
-		//D a posio do rei
-		Position kingPosition = king(color).getChessPosition().toPosition();
-		//D uma lista de peas adversrias que esto no tabuleiro (a partir de pecesOnTheBoard) 
-		List<Piece> opponentPieces = piecesOnTheBoard.stream().filter(x -> ((ChessPiece)x).getColor() == opponent(color)).collect(Collectors.toList());
-		/*Testa a matriz de boolean de movimentos possveis de cada pea da lista acima 
-		  para tentar achar alguma posio da matriz que corresponda  posio do rei*/
-		for(Piece p : opponentPieces) {
-			boolean[][] mat = p.possibleMoves(); 
-			if (mat[kingPosition.getRow()][kingPosition.getColumn()]) {
-				return true;
-			}
+	/*Testa se o rei da cor fornecida está sendo atacado, olhando a partir da casa
+	 do rei pelos raios, saltos de cavalo e diagonais de peão, em vez de gerar os
+	 movimentos de todas as peças adversárias*/
+	public boolean testCheck(Color color) {
+		if(!Metrics.ENABLED) {
+			return isInCheck(color);
+		}
+		long start = TEST_CHECK.start();
+		try {
+			return isInCheck(color);
+		}
+		finally {
+			TEST_CHECK.stop(start);
+		}
+	}
+	
+	private boolean isInCheck(Color color) {
+		if(color == currentPlayer) {
+			return checkers != 0;
+		}
+		return board.isSquareAttacked(king(color).getSquare(), opponent(color));
+	}
+	
+	//Testa se alguma peça da cor fornecida ataca a casa
+	public boolean isSquareAttacked(int square, Color by) {
+		return board.isSquareAttacked(square, by);
+	}
+	
+	/*Testa se a cor fornecida está em xeque e não tem nenhum lance legal. Numa posição
+	 legal só quem tem a vez pode estar em xeque, então a outra cor nunca está em xeque-mate*/
+	public boolean testCheckMate(Color color) {
+		if(!Metrics.ENABLED) {
+			return isCheckMate(color);
+		}
+		long start = TEST_CHECK_MATE.start();
+		try {
+			return isCheckMate(color);
+		}
+		finally {
+			TEST_CHECK_MATE.stop(start);
 		}
-		return false;
 	}
 	
-	private boolean testCheckMate(Color color) {
-		if(!testCheck(color)) {
+	private boolean isCheckMate(Color color) {
+		if(color != currentPlayer || !check) {
 			return false;
 		}
-		//D uma lista de peas da cor do jogador atual que esto no tabuleiro
-		List<Piece> list = piecesOnTheBoard.stream().filter(x -> ((ChessPiece)x).getColor() == color).collect(Collectors.toList());
-		for (Piece p : list) {
-			//D uma matriz de boolean de todos os movimentos possveis da pea em questo
-			boolean[][] mat = p.possibleMoves();
-			for(int i = 0; i < board.getRows(); i++) {
-				for(int j = 0; j < board.getColumns(); j++) {
-					//Testa se  um movimento possvel
-					if(mat[i][j]) {
-						//Move a pea em questo para a posio que est sendo testada
-						Position source = ((ChessPiece)p).getChessPosition().toPosition();
-						Position target = new Position(i, j);
-						Piece capturedPiece = makeMove(source, target);
-						//Testa se o rei da cor em questo ainda est em xeque
-						boolean testCheck = testCheck(color);
-						undoMove(source, target, capturedPiece);
-						//Se no estiver em xeque mesmo assim, retorna falso para xequemate
-						if(!testCheck) {
-							return false;
-						}
-					}
-				}
-			}
+		return !hasLegalMove();
+	}
+	
+	//Testa se o jogador atual não está em xeque mas também não tem nenhum lance legal
+	public boolean testStalemate() {
+		return !check && !hasLegalMove();
+	}
+	
+	//Coloca uma peça nova na casa, usado pelo Fen na montagem da posição
+	void placeFenPiece(PieceType type, Color color, int square) {
+		ChessPiece piece;
+		if(type == PieceType.PAWN) piece = new Pawn(board, color, this);
+		else if(type == PieceType.KING) piece = new King(board, color, this);
+		else piece = newPiece(type, color);
+		if(type == PieceType.KING && piecesOnTheBoard.king(color) != null) {
+			throw new ChessException("Invalid FEN: more than one " + color + " king");
 		}
-		return true;
+		putPiece(piece, square);
+	}
+	
+	/*Completa a posição montada pelo Fen com o estado da partida. Os direitos de
+	 roque sem o rei e a torre nas casas de origem são descartados, e a posição
+	 precisa ser legal: um rei de cada cor e quem não tem a vez fora de xeque*/
+	void setFenState(Color player, int castling, int enPassant, int halfmove, int fullmove) {
+		if(piecesOnTheBoard.king(Color.WHITE) == null || piecesOnTheBoard.king(Color.BLACK) == null) {
+			throw new ChessException("Invalid FEN: each side must have a king");
+		}
+		currentPlayer = player;
+		//turn conta os lances de cada jogador, começando em 1 com as brancas
+		turn = 2 * (fullmove - 1) + (player == Color.WHITE ? 1 : 2);
+		castlingRights = castling & castlingAvailable();
+		//Só vale se houver um peão adversário que acabou de avançar duas casas
+		int pawnSquare = enPassant + (player == Color.WHITE ? 8 : -8);
+		ChessPiece pawn = enPassant < 0 ? null : board.pieceAt(pawnSquare);
+		enPassantSquare = pawn instanceof Pawn && pawn.getColor() != player && !board.isOccupied(enPassant) ? enPassant : -1;
+		halfmoveClock = halfmove;
+		key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassantSquare);
+		if(player == Color.BLACK) {
+			key ^= Zobrist.blackToMove();
+		}
+		if(testCheck(opponent(player))) {
+			throw new ChessException("Invalid FEN: the side not to move is in check");
+		}
+		updateCheckers();
+		checkMate = check && !hasLegalMove();
 	}
 	
-	//Instancia a posio de uma nova pea passando a posio em coord de xadrez
+	//Direitos de roque possíveis pela posição do rei e das torres
+	private int castlingAvailable() {
+		int available = 0;
+		if(isOnSquare(PieceType.KING, Color.WHITE, 7, 4)) {
+			if(isOnSquare(PieceType.ROOK, Color.WHITE, 7, 7)) available |= WHITE_KINGSIDE;
+			if(isOnSquare(PieceType.ROOK, Color.WHITE, 7, 0)) available |= WHITE_QUEENSIDE;
+		}
+		if(isOnSquare(PieceType.KING, Color.BLACK, 0, 4)) {
+			if(isOnSquare(PieceType.ROOK, Color.BLACK, 0, 7)) available |= BLACK_KINGSIDE;
+			if(isOnSquare(PieceType.ROOK, Color.BLACK, 0, 0)) available |= BLACK_QUEENSIDE;
+		}
+		return available;
+	}
+	
+	private boolean isOnSquare(PieceType type, Color color, int row, int column) {
+		return (board.pieces(color, type) & ChessBoard.bit(ChessBoard.square(row, column))) != 0;
+	}
+	
+	//Instancia a posição de uma nova peça passando a posição em coord de xadrez
 	private void placeNewPiece(char column, int row, ChessPiece piece) {
-		board.placePiece(piece, new ChessPosition(column,row).toPosition());
-		piecesOnTheBoard.add(piece);
+		putPiece(piece, ChessPosition.of(column, row).getSquare());
 	}
 	
 	private void initialSetup() {
@@ -1,17 +1,31 @@
 package chess;
 
-import boardgame.Board;
 import boardgame.Piece;
 import boardgame.Position;
+import metrics.Metrics;
+import metrics.Timer;
 
 public abstract class ChessPiece extends Piece{
 
+	//Timers do possibleMoves, um por tipo de peça (ver Metrics)
+	private static final Timer[] POSSIBLE_MOVES = new Timer[PieceType.values().length];
+	
+	static {
+		for (PieceType type : PieceType.values()) {
+			POSSIBLE_MOVES[type.ordinal()] = Metrics.timer("possibleMoves." + type.name().toLowerCase());
+		}
+	}
+	
 	private Color color;
 	private int moveCount;
+	private ChessBoard chessBoard;
+	//Índice da peça na sua lista do PieceList, mantido pelo próprio registro
+	int listSlot = -1;
 
 	
-	public ChessPiece(Board board, Color color) {
+	public ChessPiece(ChessBoard board, Color color) {
 		super(board);
+		this.chessBoard = board;
 		this.color = color;
 	}
 
@@ -19,6 +33,8 @@ public abstract class ChessPiece extends Piece{
 		return color;
 	}
 	
+	public abstract PieceType getType();
+	
 	public int getMoveCount() {
 		return moveCount;
 	}
@@ -31,12 +47,87 @@ public abstract class ChessPiece extends Piece{
 		moveCount--;
 	}
 	
+	//Usado ao copiar a partida
+	void setMoveCount(int moveCount) {
+		this.moveCount = moveCount;
+	}
+	
+	//Posição canônica da casa da peça (ver ChessPosition.of), ou null fora do tabuleiro
 	public ChessPosition getChessPosition() {
-		return ChessPosition.fromPosition(position);
+		return position == null ? null : ChessPosition.fromPosition(position);
+	}
+	
+	protected ChessBoard getChessBoard() {
+		return chessBoard;
+	}
+	
+	//Índice da casa da peça (0..63), ou -1 se ela não estiver no tabuleiro
+	public int getSquare() {
+		return position == null ? -1 : ChessBoard.square(position);
+	}
+	
+	//Adiciona no buffer os lances pseudo-legais da peça, sem limpar o buffer e sem alocar
+	public abstract void generateMoves(MoveList moves);
+	
+	//Os métodos com matriz de boolean são adaptadores do generateMoves, usados pela UI
+	@Override
+	public boolean[][] possibleMoves() {
+		if (!Metrics.ENABLED) {
+			return moveMatrix();
+		}
+		Timer timer = POSSIBLE_MOVES[getType().ordinal()];
+		long start = timer.start();
+		try {
+			return moveMatrix();
+		}
+		finally {
+			timer.stop(start);
+		}
+	}
+	
+	private boolean[][] moveMatrix() {
+		boolean[][] mat = new boolean[chessBoard.getRows()][chessBoard.getColumns()];
+		MoveList moves = chessBoard.moveBuffer();
+		moves.clear();
+		generateMoves(moves);
+		for (int i = 0; i < moves.size(); i++) {
+			int to = Move.to(moves.get(i));
+			mat[ChessBoard.row(to)][ChessBoard.column(to)] = true;
+		}
+		return mat;
+	}
+	
+	@Override
+	public boolean possibleMove(Position position) {
+		int target = ChessBoard.square(position);
+		MoveList moves = chessBoard.moveBuffer();
+		moves.clear();
+		generateMoves(moves);
+		for (int i = 0; i < moves.size(); i++) {
+			if (Move.to(moves.get(i)) == target) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	@Override
+	public boolean isThereAnyPossibleMove() {
+		MoveList moves = chessBoard.moveBuffer();
+		moves.clear();
+		generateMoves(moves);
+		return !moves.isEmpty();
 	}
 	
-	protected boolean isThereOpponentPiece(Position position) {
-		ChessPiece p = (ChessPiece) getBoard().piece(position);
-		return p != null && p.getColor() != color;
+	//Adiciona um lance para cada casa de targets que não tenha peça da mesma cor
+	protected void addMoves(MoveList moves, int from, long targets) {
+		long own = chessBoard.occupancy(color);
+		long opponents = chessBoard.occupied() & ~own;
+		targets &= ~own;
+		while (targets != 0) {
+			int to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			moves.add(Move.of(from, to, (opponents & ChessBoard.bit(to)) != 0 ? Move.CAPTURE : Move.QUIET));
+		}
 	}
 }
@@ -2,19 +2,45 @@ package chess;
 
 import boardgame.Position;
 
-public class ChessPosition {
+/*
+ Casa em coordenadas de xadrez (coluna de A a H, linha de 1 a 8). São 64
+ instâncias imutáveis, criadas uma vez numa tabela indexada pela casa (0..63,
+ A8 = 0, ver ChessBoard) e obtidas pelo of.
+ */
+public final class ChessPosition {
 
-	//PARA CONVERTER A POSIAO DE XADREZ PRA POSIO DE MATRIZ E VICE VERSA
-	private char column;
-	private int row;
+	private static final ChessPosition[] POSITIONS = new ChessPosition[ChessBoard.SQUARES];
 	
-	public ChessPosition(char column, int row) {
+	static {
+		for (int square = 0; square < ChessBoard.SQUARES; square++) {
+			POSITIONS[square] = new ChessPosition((char) ('A' + ChessBoard.column(square)), 8 - ChessBoard.row(square), square);
+		}
+	}
+	
+	//PARA CONVERTER A POSIÇAO DE XADREZ PRA POSIÇÃO DE MATRIZ E VICE VERSA
+	private final char column;
+	private final int row;
+	private final int square;
+	
+	private ChessPosition(char column, int row, int square) {
+		this.column = column;
+		this.row = row;
+		this.square = square;
+	}
+	
+	public static ChessPosition of(char column, int row) {
 		if(column < 'A' || column > 'H'|| row < 1 || row > 8) {
 			//Prog defensiva
 			throw new ChessException("Error instantiating ChessPosition. Valid values are from A1 to H8"); 
 		}
-		this.column = column;
-		this.row = row;
+		return POSITIONS[ChessBoard.square(8 - row, column - 'A')];
+	}
+	
+	public static ChessPosition of(int square) {
+		if(square < 0 || square >= ChessBoard.SQUARES) {
+			throw new ChessException("Error instantiating ChessPosition. Valid squares are from 0 to 63"); 
+		}
+		return POSITIONS[square];
 	}
 
 	public char getColumn() {
@@ -23,13 +49,18 @@ public class ChessPosition {
 	public int getRow() {
 		return row;
 	}
+	
+	//Índice da casa (0..63)
+	public int getSquare() {
+		return square;
+	}
 
 	protected Position toPosition() {
-		return new Position(8 - row, column - 'A');
+		return Position.of(8 - row, column - 'A');
 	}
 	
 	protected static ChessPosition fromPosition(Position position) {
-		return new ChessPosition((char)('A' + position.getColumn()), 8 - position.getRow());
+		return of(ChessBoard.square(position));
 	}
 	
 	@Override
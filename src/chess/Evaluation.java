@@ -0,0 +1,158 @@
+package chess;
+
+/*
+ Valores da avaliação estática: material e tabelas de casas (piece-square
+ tables) para o meio-jogo e para o final, e o peso de cada peça na fase da
+ partida. As tabelas estão escritas do ponto de vista das brancas, com a
+ linha 8 em cima, que é a mesma ordem das casas do ChessBoard (A8 = 0); para
+ as pretas a casa é espelhada verticalmente.
+
+ A ChessMatch soma esses valores incrementalmente a cada peça que entra, sai
+ ou muda de casa, então avaliar uma posição não percorre o tabuleiro: só
+ interpola o meio-jogo e o final pela fase (24 com todas as peças, 0 só com
+ reis e peões).
+ */
+public final class Evaluation {
+
+	public static final int MAX_PHASE = 24;
+	
+	private static final int[] MATERIAL_MG = { 100, 320, 330, 500, 900, 0 };
+	private static final int[] MATERIAL_EG = { 120, 300, 320, 520, 930, 0 };
+	private static final int[] PHASE = { 0, 1, 1, 2, 4, 0 };
+	
+	private static final int[] PAWN_MG = {
+			0, 0, 0, 0, 0, 0, 0, 0,
+			50, 50, 50, 50, 50, 50, 50, 50,
+			10, 10, 20, 30, 30, 20, 10, 10,
+			5, 5, 10, 25, 25, 10, 5, 5,
+			0, 0, 0, 20, 20, 0, 0, 0,
+			5, -5, -10, 0, 0, -10, -5, 5,
+			5, 10, 10, -20, -20, 10, 10, 5,
+			0, 0, 0, 0, 0, 0, 0, 0 };
+	
+	//No final o que vale é o peão avançado
+	private static final int[] PAWN_EG = {
+			0, 0, 0, 0, 0, 0, 0, 0,
+			80, 80, 80, 80, 80, 80, 80, 80,
+			50, 50, 50, 50, 50, 50, 50, 50,
+			30, 30, 30, 30, 30, 30, 30, 30,
+			15, 15, 15, 15, 15, 15, 15, 15,
+			5, 5, 5, 5, 5, 5, 5, 5,
+			0, 0, 0, 0, 0, 0, 0, 0,
+			0, 0, 0, 0, 0, 0, 0, 0 };
+	
+	private static final int[] KNIGHT = {
+			-50, -40, -30, -30, -30, -30, -40, -50,
+			-40, -20, 0, 0, 0, 0, -20, -40,
+			-30, 0, 10, 15, 15, 10, 0, -30,
+			-30, 5, 15, 20, 20, 15, 5, -30,
+			-30, 0, 15, 20, 20, 15, 0, -30,
+			-30, 5, 10, 15, 15, 10, 5, -30,
+			-40, -20, 0, 5, 5, 0, -20, -40,
+			-50, -40, -30, -30, -30, -30, -40, -50 };
+	
+	private static final int[] BISHOP = {
+			-20, -10, -10, -10, -10, -10, -10, -20,
+			-10, 0, 0, 0, 0, 0, 0, -10,
+			-10, 0, 5, 10, 10, 5, 0, -10,
+			-10, 5, 5, 10, 10, 5, 5, -10,
+			-10, 0, 10, 10, 10, 10, 0, -10,
+			-10, 10, 10, 10, 10, 10, 10, -10,
+			-10, 5, 0, 0, 0, 0, 5, -10,
+			-20, -10, -10, -10, -10, -10, -10, -20 };
+	
+	private static final int[] ROOK = {
+			0, 0, 0, 0, 0, 0, 0, 0,
+			5, 10, 10, 10, 10, 10, 10, 5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			-5, 0, 0, 0, 0, 0, 0, -5,
+			0, 0, 0, 5, 5, 0, 0, 0 };
+	
+	private static final int[] QUEEN = {
+			-20, -10, -10, -5, -5, -10, -10, -20,
+			-10, 0, 0, 0, 0, 0, 0, -10,
+			-10, 0, 5, 5, 5, 5, 0, -10,
+			-5, 0, 5, 5, 5, 5, 0, -5,
+			0, 0, 5, 5, 5, 5, 0, -5,
+			-10, 5, 5, 5, 5, 5, 0, -10,
+			-10, 0, 5, 0, 0, 0, 0, -10,
+			-20, -10, -10, -5, -5, -10, -10, -20 };
+	
+	//No meio-jogo o rei fica protegido atrás dos peões
+	private static final int[] KING_MG = {
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-30, -40, -40, -50, -50, -40, -40, -30,
+			-20, -30, -30, -40, -40, -30, -30, -20,
+			-10, -20, -20, -20, -20, -20, -20, -10,
+			20, 20, 0, 0, 0, 0, 20, 20,
+			20, 30, 10, 0, 0, 10, 30, 20 };
+	
+	//No final ele vai para o centro
+	private static final int[] KING_EG = {
+			-50, -40, -30, -20, -20, -30, -40, -50,
+			-30, -20, -10, 0, 0, -10, -20, -30,
+			-30, -10, 20, 30, 30, 20, -10, -30,
+			-30, -10, 30, 40, 40, 30, -10, -30,
+			-30, -10, 30, 40, 40, 30, -10, -30,
+			-30, -10, 20, 30, 30, 20, -10, -30,
+			-30, -30, 0, 0, 0, 0, -30, -30,
+			-50, -30, -30, -30, -30, -30, -30, -50 };
+	
+	private static final int[][] TABLES_MG = { PAWN_MG, KNIGHT, BISHOP, ROOK, QUEEN, KING_MG };
+	private static final int[][] TABLES_EG = { PAWN_EG, KNIGHT, BISHOP, ROOK, QUEEN, KING_EG };
+	
+	private static final int TYPES = PieceType.values().length;
+	
+	/*Material + tabela já somados por cor, tipo e casa, com o sinal da cor
+	 (positivo para as brancas), indexados por (cor * TYPES + tipo) * 64 + casa*/
+	private static final int[] MG = new int[2 * TYPES * ChessBoard.SQUARES];
+	private static final int[] EG = new int[2 * TYPES * ChessBoard.SQUARES];
+	
+	static {
+		for (Color color : Color.values()) {
+			int sign = color == Color.WHITE ? 1 : -1;
+			for (int type = 0; type < TYPES; type++) {
+				for (int square = 0; square < ChessBoard.SQUARES; square++) {
+					//As pretas leem a tabela de cabeça para baixo (A1 da preta é A8 da branca)
+					int relative = color == Color.WHITE ? square : square ^ 56;
+					int index = (color.ordinal() * TYPES + type) * ChessBoard.SQUARES + square;
+					MG[index] = sign * (MATERIAL_MG[type] + TABLES_MG[type][relative]);
+					EG[index] = sign * (MATERIAL_EG[type] + TABLES_EG[type][relative]);
+				}
+			}
+		}
+	}
+	
+	private Evaluation() {
+	}
+	
+	//Valor de meio-jogo da peça na casa, positivo para as brancas
+	public static int mg(ChessPiece piece, int square) {
+		return MG[(piece.getColor().ordinal() * TYPES + piece.getType().ordinal()) * ChessBoard.SQUARES + square];
+	}
+	
+	//Valor de final da peça na casa, positivo para as brancas
+	public static int eg(ChessPiece piece, int square) {
+		return EG[(piece.getColor().ordinal() * TYPES + piece.getType().ordinal()) * ChessBoard.SQUARES + square];
+	}
+	
+	public static int phase(PieceType type) {
+		return PHASE[type.ordinal()];
+	}
+	
+	//Valor de material de meio-jogo do tipo de peça (usado também para ordenar capturas)
+	public static int value(PieceType type) {
+		return MATERIAL_MG[type.ordinal()];
+	}
+	
+	//Interpola os scores de meio-jogo e final pela fase (mais peças, mais meio-jogo)
+	public static int taper(int mg, int eg, int phase) {
+		phase = Math.min(phase, MAX_PHASE);
+		return (mg * phase + eg * (MAX_PHASE - phase)) / MAX_PHASE;
+	}
+}
@@ -0,0 +1,208 @@
+package chess;
+
+/*
+ Leitura e escrita de posições na notação FEN, por exemplo a posição inicial:
+ rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1
+ (peças da linha 8 para a 1, vez, roque, en passant, regra dos 50 lances e
+ número do lance). A leitura percorre a string caractere por caractere, sem
+ split nem expressões regulares, e coloca as peças direto na partida.
+ */
+final class Fen {
+
+	private Fen() {
+	}
+	
+	static void read(String fen, ChessMatch chessMatch) {
+		int length = fen.length();
+		int i = skipSpaces(fen, 0);
+		
+		//Peças, linha por linha a partir da linha 8 (row 0 do tabuleiro)
+		int row = 0;
+		int column = 0;
+		for (; i < length && fen.charAt(i) != ' '; i++) {
+			char c = fen.charAt(i);
+			if (c == '/') {
+				if (column != ChessBoard.SIZE || row == ChessBoard.SIZE - 1) {
+					throw invalid(fen, "wrong number of squares in a row");
+				}
+				row++;
+				column = 0;
+			}
+			else if (c >= '1' && c <= '8') {
+				column += c - '0';
+			}
+			else {
+				PieceType type = pieceType(c);
+				if (type == null) {
+					throw invalid(fen, "unknown piece '" + c + "'");
+				}
+				if (column >= ChessBoard.SIZE) {
+					throw invalid(fen, "wrong number of squares in a row");
+				}
+				if (type == PieceType.PAWN && (row == 0 || row == ChessBoard.SIZE - 1)) {
+					throw invalid(fen, "pawn on the first or last row");
+				}
+				chessMatch.placeFenPiece(type, Character.isUpperCase(c) ? Color.WHITE : Color.BLACK, ChessBoard.square(row, column));
+				column++;
+			}
+			if (column > ChessBoard.SIZE) {
+				throw invalid(fen, "wrong number of squares in a row");
+			}
+		}
+		if (row != ChessBoard.SIZE - 1 || column != ChessBoard.SIZE) {
+			throw invalid(fen, "the board must have 8 rows of 8 squares");
+		}
+		
+		//Vez
+		i = skipSpaces(fen, i);
+		if (i >= length || (fen.charAt(i) != 'w' && fen.charAt(i) != 'b')) {
+			throw invalid(fen, "side to move must be 'w' or 'b'");
+		}
+		Color player = fen.charAt(i++) == 'w' ? Color.WHITE : Color.BLACK;
+		
+		//Roque ("-" ou qualquer combinação de KQkq); campos ausentes daqui em diante valem o padrão
+		i = skipSpaces(fen, i);
+		int castling = 0;
+		if (i < length && fen.charAt(i) == '-') {
+			i++;
+		}
+		else {
+			for (; i < length && fen.charAt(i) != ' '; i++) {
+				switch (fen.charAt(i)) {
+				case 'K': castling |= ChessMatch.WHITE_KINGSIDE; break;
+				case 'Q': castling |= ChessMatch.WHITE_QUEENSIDE; break;
+				case 'k': castling |= ChessMatch.BLACK_KINGSIDE; break;
+				case 'q': castling |= ChessMatch.BLACK_QUEENSIDE; break;
+				default: throw invalid(fen, "unknown castling right '" + fen.charAt(i) + "'");
+				}
+			}
+		}
+		
+		//En passant: a casa para onde o peão que captura se move
+		i = skipSpaces(fen, i);
+		int enPassant = -1;
+		if (i < length && fen.charAt(i) == '-') {
+			i++;
+		}
+		else if (i < length) {
+			if (i + 1 >= length) {
+				throw invalid(fen, "incomplete en passant square");
+			}
+			enPassant = square(fen.charAt(i), fen.charAt(i + 1));
+			int expectedRow = player == Color.WHITE ? 2 : 5;
+			if (enPassant < 0 || ChessBoard.row(enPassant) != expectedRow) {
+				throw invalid(fen, "invalid en passant square");
+			}
+			i += 2;
+		}
+		
+		//Contadores
+		i = skipSpaces(fen, i);
+		int halfmove = 0;
+		int fullmove = 1;
+		if (i < length) {
+			for (; i < length && fen.charAt(i) != ' '; i++) {
+				halfmove = digit(fen, i) + halfmove * 10;
+			}
+			i = skipSpaces(fen, i);
+			if (i < length) {
+				fullmove = 0;
+				for (; i < length && fen.charAt(i) != ' '; i++) {
+					fullmove = digit(fen, i) + fullmove * 10;
+				}
+				fullmove = Math.max(1, fullmove);
+			}
+		}
+		if (skipSpaces(fen, i) != length) {
+			throw invalid(fen, "unexpected text at the end");
+		}
+		chessMatch.setFenState(player, castling, enPassant, halfmove, fullmove);
+	}
+	
+	static String write(ChessMatch chessMatch) {
+		ChessBoard board = chessMatch.getBoard();
+		StringBuilder sb = new StringBuilder(90);
+		for (int row = 0; row < ChessBoard.SIZE; row++) {
+			int empty = 0;
+			for (int column = 0; column < ChessBoard.SIZE; column++) {
+				ChessPiece piece = board.pieceAt(ChessBoard.square(row, column));
+				if (piece == null) {
+					empty++;
+					continue;
+				}
+				if (empty > 0) {
+					sb.append((char) ('0' + empty));
+					empty = 0;
+				}
+				char letter = Move.letter(piece.getType());
+				sb.append(piece.getColor() == Color.WHITE ? letter : Character.toLowerCase(letter));
+			}
+			if (empty > 0) {
+				sb.append((char) ('0' + empty));
+			}
+			if (row < ChessBoard.SIZE - 1) {
+				sb.append('/');
+			}
+		}
+		
+		sb.append(chessMatch.getCurrentPlayer() == Color.WHITE ? " w " : " b ");
+		int castling = chessMatch.getCastlingRights();
+		if (castling == 0) {
+			sb.append('-');
+		}
+		if ((castling & ChessMatch.WHITE_KINGSIDE) != 0) sb.append('K');
+		if ((castling & ChessMatch.WHITE_QUEENSIDE) != 0) sb.append('Q');
+		if ((castling & ChessMatch.BLACK_KINGSIDE) != 0) sb.append('k');
+		if ((castling & ChessMatch.BLACK_QUEENSIDE) != 0) sb.append('q');
+		
+		sb.append(' ');
+		if (chessMatch.getEnPassantSquare() < 0) {
+			sb.append('-');
+		}
+		else {
+			Move.appendSquare(sb, chessMatch.getEnPassantSquare());
+		}
+		sb.append(' ').append(chessMatch.getHalfmoveClock());
+		sb.append(' ').append((chessMatch.getTurn() + 1) / 2);
+		return sb.toString();
+	}
+	
+	static PieceType pieceType(char letter) {
+		switch (Character.toUpperCase(letter)) {
+		case 'P': return PieceType.PAWN;
+		case 'N': return PieceType.KNIGHT;
+		case 'B': return PieceType.BISHOP;
+		case 'R': return PieceType.ROOK;
+		case 'Q': return PieceType.QUEEN;
+		case 'K': return PieceType.KING;
+		default: return null;
+		}
+	}
+	
+	//Índice da casa em notação de coordenadas ("e3"), ou -1 se não for uma casa
+	static int square(char column, char row) {
+		if (column < 'a' || column > 'h' || row < '1' || row > '8') {
+			return -1;
+		}
+		return ChessBoard.square('8' - row, column - 'a');
+	}
+	
+	private static int skipSpaces(String fen, int i) {
+		while (i < fen.length() && fen.charAt(i) == ' ') {
+			i++;
+		}
+		return i;
+	}
+	
+	private static int digit(String fen, int i) {
+		char c = fen.charAt(i);
+		if (c < '0' || c > '9') {
+			throw invalid(fen, "move counters must be numbers");
+		}
+		return c - '0';
+	}
+	
+	private static ChessException invalid(String fen, String reason) {
+		return new ChessException("Invalid FEN (" + reason + "): " + fen);
+	}
+}
@@ -0,0 +1,134 @@
+package chess;
+
+/*
+ Representação de um lance em um único int, para a geração de lances não
+ precisar alocar objetos:
+ bits 0-5   casa de origem (0..63, ver ChessBoard.square)
+ bits 6-11  casa de destino
+ bits 12-15 flags (CAPTURE, DOUBLE_PUSH, EN_PASSANT, CASTLING)
+ bits 16-18 peça da promoção (ordinal de PieceType, 0 se não houver)
+ */
+public final class Move {
+
+	public static final int NONE = 0;
+
+	public static final int QUIET = 0;
+	public static final int CAPTURE = 1;
+	public static final int DOUBLE_PUSH = 2;
+	public static final int EN_PASSANT = 4;
+	public static final int CASTLING = 8;
+
+	private static final PieceType[] TYPES = PieceType.values();
+
+	private Move() {
+	}
+
+	public static int of(int from, int to, int flags) {
+		return from | (to << 6) | (flags << 12);
+	}
+
+	public static int of(int from, int to, int flags, PieceType promotion) {
+		return from | (to << 6) | (flags << 12) | (promotion.ordinal() << 16);
+	}
+
+	public static int from(int move) {
+		return move & 63;
+	}
+
+	public static int to(int move) {
+		return (move >>> 6) & 63;
+	}
+
+	public static int flags(int move) {
+		return (move >>> 12) & 15;
+	}
+
+	public static boolean isCapture(int move) {
+		return (move & ((CAPTURE | EN_PASSANT) << 12)) != 0;
+	}
+
+	public static boolean isPromotion(int move) {
+		return (move >>> 16) != 0;
+	}
+
+	//Retorna o tipo da peça promovida, ou null se o lance não for promoção
+	public static PieceType promotion(int move) {
+		int p = move >>> 16;
+		return p == 0 ? null : TYPES[p];
+	}
+
+	/*Forma compacta em 16 bits, para guardar partidas: origem (bits 0-5), destino
+	 (bits 6-11) e peça da promoção (bits 12-14). As flags ficam de fora porque
+	 dependem só da posição (ver ChessMatch.findMove)*/
+	public static int compact(int move) {
+		return (move & 0xFFF) | ((move >>> 16) << 12);
+	}
+	
+	//Peça da promoção de um lance compacto, ou null se não houver
+	public static PieceType compactPromotion(int compact) {
+		int p = (compact >>> 12) & 7;
+		return p == 0 ? null : TYPES[p];
+	}
+	
+	//Notação de coordenadas, ex.: "e2e4" ou "e7e8q"
+	public static String toString(int move) {
+		StringBuilder sb = new StringBuilder(5);
+		appendSquare(sb, from(move));
+		appendSquare(sb, to(move));
+		PieceType promotion = promotion(move);
+		if (promotion != null) {
+			sb.append(Character.toLowerCase(letter(promotion)));
+		}
+		return sb.toString();
+	}
+
+	/*Lance legal do jogador atual da partida na notação de coordenadas ("e2e4",
+	 "e7e8q"), ou NONE se o texto não for um lance legal*/
+	public static int parse(ChessMatch chessMatch, String text) {
+		if (text.length() < 4 || text.length() > 5) {
+			return NONE;
+		}
+		int from = square(text.charAt(0), text.charAt(1));
+		int to = square(text.charAt(2), text.charAt(3));
+		if (from < 0 || to < 0) {
+			return NONE;
+		}
+		PieceType promotion = null;
+		if (text.length() == 5) {
+			switch (Character.toLowerCase(text.charAt(4))) {
+			case 'n': promotion = PieceType.KNIGHT; break;
+			case 'b': promotion = PieceType.BISHOP; break;
+			case 'r': promotion = PieceType.ROOK; break;
+			case 'q': promotion = PieceType.QUEEN; break;
+			default: return NONE;
+			}
+		}
+		return chessMatch.findMove(from, to, promotion);
+	}
+	
+	//Casa de uma coluna ('a'-'h') e linha ('1'-'8'), ou -1
+	private static int square(char column, char row) {
+		column = Character.toLowerCase(column);
+		if (column < 'a' || column > 'h' || row < '1' || row > '8') {
+			return -1;
+		}
+		return ChessBoard.square('8' - row, column - 'a');
+	}
+	
+	static void appendSquare(StringBuilder sb, int square) {
+		sb.append((char) ('a' + ChessBoard.column(square)));
+		sb.append((char) ('8' - ChessBoard.row(square)));
+	}
+
+	//Letra da peça, a mesma usada no toString das peças
+	public static char letter(PieceType type) {
+		switch (type) {
+		case PAWN: return 'P';
+		case KNIGHT: return 'N';
+		case BISHOP: return 'B';
+		case ROOK: return 'R';
+		case QUEEN: return 'Q';
+		default: return 'K';
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package chess;
+
+/*
+ Resultado do ChessMatch.playMoves: quantos lances da sequência foram feitos e,
+ se um deles foi recusado, o índice e o motivo; senão, a situação da partida
+ depois do último lance. O mesmo objeto pode ser passado em várias chamadas,
+ para validar muitas partidas sem alocar.
+ */
+public final class MoveCheck {
+
+	//Motivo da recusa de um lance
+	public enum Reason {
+		//Todos os lances foram feitos
+		OK,
+		//Bits fora do formato (promoção para peão ou rei, ou bits acima da promoção)
+		INVALID_ENCODING,
+		//O jogador da vez não tem lances: a partida já acabou em mate ou afogamento
+		GAME_OVER,
+		NO_PIECE,
+		NOT_YOUR_PIECE,
+		//A peça não vai para a casa de destino (ou a promoção não confere)
+		CANNOT_MOVE_THERE,
+		//O lance deixaria o rei em xeque (no roque, também passar por casa atacada)
+		LEAVES_KING_IN_CHECK
+	}
+	
+	//Situação da partida depois do último lance feito
+	public enum State {
+		PLAYING,
+		CHECK,
+		CHECKMATE,
+		STALEMATE
+	}
+	
+	private int applied;
+	private Reason reason = Reason.OK;
+	private int rejectedMove;
+	private State state = State.PLAYING;
+	
+	void accept(int applied, State state) {
+		this.applied = applied;
+		this.reason = Reason.OK;
+		this.rejectedMove = Move.NONE;
+		this.state = state;
+	}
+	
+	void reject(int index, int move, Reason reason, State state) {
+		this.applied = index;
+		this.reason = reason;
+		this.rejectedMove = move;
+		this.state = state;
+	}
+	
+	public boolean isValid() {
+		return reason == Reason.OK;
+	}
+	
+	//Lances feitos; na recusa, é também o índice (na sequência) do lance recusado
+	public int getApplied() {
+		return applied;
+	}
+	
+	//Índice do lance recusado na sequência, ou -1 se todos foram feitos
+	public int getRejectedIndex() {
+		return reason == Reason.OK ? -1 : applied;
+	}
+	
+	public Reason getReason() {
+		return reason;
+	}
+	
+	//O lance recusado, como veio na sequência
+	public int getRejectedMove() {
+		return rejectedMove;
+	}
+	
+	public State getState() {
+		return state;
+	}
+	
+	@Override
+	public String toString() {
+		if (reason == Reason.OK) {
+			return applied + " moves, " + state;
+		}
+		return "move " + applied + " rejected: " + reason + " (" + applied + " moves applied, " + state + ")";
+	}
+}
@@ -0,0 +1,72 @@
+package chess;
+
+/*
+ Buffer reutilizável de lances codificados (ver Move). O chamador cria a lista
+ uma vez e a limpa antes de cada geração, assim nada é alocado durante a busca.
+ */
+public class MoveList {
+
+	//Nenhuma posição legal tem mais que 218 lances
+	public static final int CAPACITY = 256;
+
+	private int[] moves;
+	private int size;
+
+	public MoveList() {
+		this(CAPACITY);
+	}
+
+	public MoveList(int capacity) {
+		moves = new int[capacity];
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public void add(int move) {
+		moves[size++] = move;
+	}
+
+	public int get(int index) {
+		return moves[index];
+	}
+
+	public void set(int index, int move) {
+		moves[index] = move;
+	}
+
+	//Descarta os lances a partir do índice fornecido (usado para filtrar a lista no lugar)
+	public void truncate(int size) {
+		this.size = size;
+	}
+	
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean contains(int move) {
+		for (int i = 0; i < size; i++) {
+			if (moves[i] == move) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("[");
+		for (int i = 0; i < size; i++) {
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(Move.toString(moves[i]));
+		}
+		return sb.append("]").toString();
+	}
+}
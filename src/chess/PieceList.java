@@ -0,0 +1,65 @@
+package chess;
+
+/*
+ Registro das peças que estão no tabuleiro, com uma lista por cor e tipo. Cada
+ peça guarda o índice da sua posição na lista (listSlot), então inserir e
+ retirar são O(1): quem sai dá lugar à última peça da lista. O rei de cada cor
+ é sempre o primeiro (e único) da sua lista.
+ */
+public class PieceList {
+
+	//Mais que o suficiente: no máximo 10 peças de um tipo (2 originais + 8 promoções)
+	private static final int CAPACITY = 16;
+	private static final int TYPES = PieceType.values().length;
+	
+	//As listas ficam lado a lado num vetor só (lista * CAPACITY + posição), que é mais barato de criar
+	private ChessPiece[] lists = new ChessPiece[2 * TYPES * CAPACITY];
+	private int[] counts = new int[2 * TYPES];
+	
+	private static int index(Color color, PieceType type) {
+		return color.ordinal() * TYPES + type.ordinal();
+	}
+	
+	public void add(ChessPiece piece) {
+		int list = index(piece.getColor(), piece.getType());
+		int slot = counts[list];
+		if (slot == CAPACITY) {
+			throw new ChessException("Too many pieces of type " + piece.getType());
+		}
+		lists[list * CAPACITY + slot] = piece;
+		piece.listSlot = slot;
+		counts[list]++;
+	}
+	
+	public void remove(ChessPiece piece) {
+		int list = index(piece.getColor(), piece.getType());
+		int slot = piece.listSlot;
+		int last = --counts[list];
+		ChessPiece moved = lists[list * CAPACITY + last];
+		lists[list * CAPACITY + slot] = moved;
+		moved.listSlot = slot;
+		lists[list * CAPACITY + last] = null;
+		piece.listSlot = -1;
+	}
+	
+	public int count(Color color, PieceType type) {
+		return counts[index(color, type)];
+	}
+	
+	public ChessPiece get(Color color, PieceType type, int index) {
+		return lists[index(color, type) * CAPACITY + index];
+	}
+	
+	public ChessPiece king(Color color) {
+		return lists[index(color, PieceType.KING) * CAPACITY];
+	}
+	
+	//Total de peças da cor fornecida
+	public int count(Color color) {
+		int total = 0;
+		for (int i = color.ordinal() * TYPES; i < (color.ordinal() + 1) * TYPES; i++) {
+			total += counts[i];
+		}
+		return total;
+	}
+}
@@ -0,0 +1,124 @@
+package chess;
+
+/*
+ Retrato imutável de uma posição, em poucos bytes: as casas ocupadas (uma
+ máscara), 4 bits por peça (cor e tipo) na ordem das casas, a chave de Zobrist,
+ a vez, o roque, o en passant e os contadores. Não guarda referência à partida
+ nem às peças, então pode ser passado para qualquer thread, e cada uma cria dele
+ as suas partidas de trabalho (newMatch), independentes entre si. Como no FEN,
+ a pilha de desfazer fica de fora: a cópia começa sem lances para desfazer nem
+ histórico de repetição.
+ */
+public final class Snapshot {
+
+	//Cabem 32 peças em 2 longs de 16 peças cada
+	public static final int MAX_PIECES = 32;
+	
+	private static final PieceType[] TYPES = PieceType.values();
+	private static final Color[] COLORS = Color.values();
+	
+	private final long occupied;
+	private final long low;
+	private final long high;
+	private final long key;
+	//Vez (bit 0), roque (bits 1-4), en passant + 1 (bits 5-11) e regra dos 50 lances (bits 12-31)
+	private final int state;
+	private final int turn;
+	
+	Snapshot(ChessMatch chessMatch) {
+		ChessBoard board = chessMatch.getBoard();
+		occupied = board.occupied();
+		if (Long.bitCount(occupied) > MAX_PIECES) {
+			throw new ChessException("A snapshot holds at most " + MAX_PIECES + " pieces");
+		}
+		long low = 0L;
+		long high = 0L;
+		long remaining = occupied;
+		for (int i = 0; remaining != 0; i++) {
+			int square = Long.numberOfTrailingZeros(remaining);
+			remaining &= remaining - 1;
+			ChessPiece piece = board.pieceAt(square);
+			long code = (piece.getColor().ordinal() << 3) | piece.getType().ordinal();
+			if (i < 16) {
+				low |= code << (4 * i);
+			}
+			else {
+				high |= code << (4 * (i - 16));
+			}
+		}
+		this.low = low;
+		this.high = high;
+		key = chessMatch.getKey();
+		state = chessMatch.getCurrentPlayer().ordinal()
+				| chessMatch.getCastlingRights() << 1
+				| (chessMatch.getEnPassantSquare() + 1) << 5
+				| chessMatch.getHalfmoveClock() << 12;
+		turn = chessMatch.getTurn();
+	}
+	
+	//Nova partida na posição do retrato, para ser usada (e alterada) por uma thread
+	public ChessMatch newMatch() {
+		return new ChessMatch(this);
+	}
+	
+	//Coloca as peças e o estado na partida recém-criada (ver ChessMatch(Snapshot))
+	void restore(ChessMatch chessMatch) {
+		long remaining = occupied;
+		for (int i = 0; remaining != 0; i++) {
+			int square = Long.numberOfTrailingZeros(remaining);
+			remaining &= remaining - 1;
+			int code = (int) ((i < 16 ? low >>> (4 * i) : high >>> (4 * (i - 16))) & 15);
+			chessMatch.placeFenPiece(TYPES[code & 7], COLORS[code >>> 3], square);
+		}
+		int fullmove = (turn + 1) / 2;
+		chessMatch.setFenState(getCurrentPlayer(), getCastlingRights(), getEnPassantSquare(), getHalfmoveClock(), fullmove);
+	}
+	
+	public long getKey() {
+		return key;
+	}
+	
+	public Color getCurrentPlayer() {
+		return COLORS[state & 1];
+	}
+	
+	public int getTurn() {
+		return turn;
+	}
+	
+	public int getCastlingRights() {
+		return (state >>> 1) & 15;
+	}
+	
+	public int getEnPassantSquare() {
+		return ((state >>> 5) & 127) - 1;
+	}
+	
+	public int getHalfmoveClock() {
+		return state >>> 12;
+	}
+	
+	public long getOccupied() {
+		return occupied;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof Snapshot)) {
+			return false;
+		}
+		Snapshot other = (Snapshot) obj;
+		return occupied == other.occupied && low == other.low && high == other.high
+				&& state == other.state && turn == other.turn;
+	}
+	
+	@Override
+	public int hashCode() {
+		return Long.hashCode(key);
+	}
+	
+	@Override
+	public String toString() {
+		return newMatch().toFen();
+	}
+}
@@ -0,0 +1,62 @@
+package chess;
+
+/*
+ Números aleatórios para a chave de 64 bits da posição (hash de Zobrist). A
+ chave é o XOR dos números de cada peça em sua casa, dos direitos de roque, da
+ coluna de en passant e da vez das pretas, e o ChessMatch a atualiza a cada
+ mudança em vez de recalculá-la. A semente é fixa para que a mesma posição
+ tenha sempre a mesma chave, inclusive em arquivos gravados em disco.
+ */
+public final class Zobrist {
+
+	private static final long[] PIECES = new long[2 * 6 * ChessBoard.SQUARES];
+	private static final long[] CASTLING = new long[16];
+	private static final long[] EN_PASSANT = new long[ChessBoard.SIZE];
+	private static final long BLACK_TO_MOVE;
+	
+	static {
+		long seed = 0x9E3779B97F4A7C15L;
+		for (int i = 0; i < PIECES.length; i++) {
+			PIECES[i] = seed = next(seed);
+		}
+		for (int i = 0; i < CASTLING.length; i++) {
+			CASTLING[i] = seed = next(seed);
+		}
+		for (int i = 0; i < EN_PASSANT.length; i++) {
+			EN_PASSANT[i] = seed = next(seed);
+		}
+		BLACK_TO_MOVE = next(seed);
+	}
+	
+	private Zobrist() {
+	}
+	
+	public static long piece(Color color, PieceType type, int square) {
+		return PIECES[((color.ordinal() * 6 + type.ordinal()) << 6) | square];
+	}
+	
+	public static long piece(ChessPiece piece, int square) {
+		return piece(piece.getColor(), piece.getType(), square);
+	}
+	
+	public static long castling(int rights) {
+		return CASTLING[rights];
+	}
+	
+	//Só a coluna da casa de en passant entra na chave (ou nada, se não houver)
+	public static long enPassant(int square) {
+		return square < 0 ? 0L : EN_PASSANT[ChessBoard.column(square)];
+	}
+	
+	public static long blackToMove() {
+		return BLACK_TO_MOVE;
+	}
+	
+	//SplitMix64: gera o próximo número a partir do anterior
+	private static long next(long x) {
+		long z = x + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -0,0 +1,212 @@
+package chess.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+
+/*
+ Arquivo binário de partidas terminadas, lido direto da memória mapeada:
+ abrir o arquivo não lê as partidas, e reproduzir uma delas só toca os bytes
+ dela. Formato (little-endian):
+
+ cabeçalho   magic "CGA1" (int), versão (int), número de partidas (long),
+             posição do índice no arquivo (long)
+ partidas    resultado (byte), flags (byte), número de lances (short sem sinal),
+             se a flag HAS_FEN estiver ligada o tamanho (byte) e o texto do FEN,
+             e os lances em 16 bits (ver Move.compact)
+ índice      posição de cada partida no arquivo (long)
+
+ Um lance compacto guarda só origem, destino e promoção, exatamente o que o
+ performChessMove e o replacePromotedPiece recebem; o resto vem da posição
+ (ChessMatch.findMove). Os buffers são lidos só com acesso absoluto, então
+ várias threads podem ler o mesmo GameArchive ao mesmo tempo.
+ */
+public class GameArchive implements Closeable {
+
+	public static final int RESULT_UNKNOWN = 0;
+	public static final int WHITE_WINS = 1;
+	public static final int BLACK_WINS = 2;
+	public static final int DRAW = 3;
+	
+	static final int MAGIC = 0x31414743;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 24;
+	static final int GAME_HEADER_SIZE = 4;
+	static final int HAS_FEN = 1;
+	static final int MAX_MOVES = 0xFFFF;
+	static final int MAX_FEN_LENGTH = 0xFF;
+	
+	/*Um MappedByteBuffer vai até 2 GB, então o arquivo é mapeado em segmentos de
+	 1 GB que avançam um pouco sobre o próximo, o bastante para a maior partida
+	 possível: uma partida (ou posição do índice) que começa num segmento cabe
+	 inteira nele*/
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	private static final int OVERLAP = GAME_HEADER_SIZE + 1 + MAX_FEN_LENGTH + 2 * MAX_MOVES;
+	
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final int count;
+	private final long indexOffset;
+	
+	public GameArchive(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long length = channel.size();
+			int segmentCount = (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+			segments = new MappedByteBuffer[Math.max(1, segmentCount)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << SEGMENT_BITS;
+				long size = Math.min(SEGMENT_SIZE + OVERLAP, length - start);
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, size));
+				segments[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+			if (length < HEADER_SIZE || getInt(0) != MAGIC) {
+				throw new ChessException("Not a game archive: " + path);
+			}
+			if (getInt(4) != VERSION) {
+				throw new ChessException("Unsupported game archive version " + getInt(4) + ": " + path);
+			}
+			long games = getLong(8);
+			indexOffset = getLong(16);
+			if (games > Integer.MAX_VALUE || indexOffset + 8 * games > length) {
+				throw new ChessException("Truncated game archive: " + path);
+			}
+			count = (int) games;
+		}
+		catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	public int size() {
+		return count;
+	}
+	
+	public int getResult(int game) {
+		return getByte(offset(game));
+	}
+	
+	public int getMoveCount(int game) {
+		return getShort(offset(game) + 2) & 0xFFFF;
+	}
+	
+	//Posição inicial da partida em FEN, ou null se for a posição padrão
+	public String getFen(int game) {
+		long offset = offset(game);
+		if ((getByte(offset + 1) & HAS_FEN) == 0) {
+			return null;
+		}
+		int length = getByte(offset + GAME_HEADER_SIZE) & 0xFF;
+		byte[] fen = new byte[length];
+		for (int i = 0; i < length; i++) {
+			fen[i] = getByte(offset + GAME_HEADER_SIZE + 1 + i);
+		}
+		return new String(fen, StandardCharsets.US_ASCII);
+	}
+	
+	//Lance ply da partida na forma compacta (ver Move.compact)
+	public int getCompactMove(int game, int ply) {
+		int moveCount = getMoveCount(game);
+		if (ply < 0 || ply >= moveCount) {
+			throw new IndexOutOfBoundsException("Move " + ply + " of " + moveCount);
+		}
+		return getShort(movesOffset(game) + 2L * ply) & 0xFFFF;
+	}
+	
+	//Partida na posição final
+	public ChessMatch replay(int game) {
+		return replay(game, getMoveCount(game));
+	}
+	
+	//Partida depois dos primeiros plies lances
+	public ChessMatch replay(int game, int plies) {
+		String fen = getFen(game);
+		ChessMatch chessMatch = fen == null ? new ChessMatch() : new ChessMatch(fen);
+		replay(game, plies, chessMatch);
+		return chessMatch;
+	}
+	
+	/*Faz na partida fornecida, que deve estar na posição inicial do jogo, os
+	 primeiros plies lances. Permite reaproveitar a ChessMatch entre partidas*/
+	public void replay(int game, int plies, ChessMatch chessMatch) {
+		int moveCount = getMoveCount(game);
+		if (plies < 0 || plies > moveCount) {
+			throw new IndexOutOfBoundsException("Move " + plies + " of " + moveCount);
+		}
+		long offset = movesOffset(game);
+		for (int i = 0; i < plies; i++) {
+			int compact = getShort(offset + 2L * i) & 0xFFFF;
+			int move = chessMatch.findMove(compact & 63, (compact >>> 6) & 63, Move.compactPromotion(compact));
+			if (move == Move.NONE) {
+				throw new ChessException("Corrupt game archive: illegal move at ply " + (i + 1) + " of game " + game);
+			}
+			chessMatch.makeMove(move);
+		}
+	}
+	
+	/*Fecha o arquivo. O Java 11 não tem como desfazer um mapeamento na hora: a
+	 memória é liberada quando os buffers forem coletados*/
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	//Código de resultado da tag Result do PGN ("1-0", "0-1", "1/2-1/2")
+	public static int result(String pgnResult) {
+		if ("1-0".equals(pgnResult)) return WHITE_WINS;
+		if ("0-1".equals(pgnResult)) return BLACK_WINS;
+		if ("1/2-1/2".equals(pgnResult)) return DRAW;
+		return RESULT_UNKNOWN;
+	}
+	
+	public static String resultString(int result) {
+		switch (result) {
+		case WHITE_WINS: return "1-0";
+		case BLACK_WINS: return "0-1";
+		case DRAW: return "1/2-1/2";
+		default: return "*";
+		}
+	}
+	
+	private long offset(int game) {
+		if (game < 0 || game >= count) {
+			throw new IndexOutOfBoundsException("Game " + game + " of " + count);
+		}
+		return getLong(indexOffset + 8L * game);
+	}
+	
+	private long movesOffset(int game) {
+		long offset = offset(game);
+		if ((getByte(offset + 1) & HAS_FEN) == 0) {
+			return offset + GAME_HEADER_SIZE;
+		}
+		return offset + GAME_HEADER_SIZE + 1 + (getByte(offset + GAME_HEADER_SIZE) & 0xFF);
+	}
+	
+	private byte getByte(long position) {
+		return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & (SEGMENT_SIZE - 1)));
+	}
+	
+	private short getShort(long position) {
+		return segments[(int) (position >>> SEGMENT_BITS)].getShort((int) (position & (SEGMENT_SIZE - 1)));
+	}
+	
+	private int getInt(long position) {
+		return segments[(int) (position >>> SEGMENT_BITS)].getInt((int) (position & (SEGMENT_SIZE - 1)));
+	}
+	
+	private long getLong(long position) {
+		return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & (SEGMENT_SIZE - 1)));
+	}
+}
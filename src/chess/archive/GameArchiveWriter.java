@@ -0,0 +1,150 @@
+package chess.archive;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.pgn.GameHandler;
+import chess.pgn.PgnGame;
+
+/*
+ Grava partidas no formato do GameArchive. As partidas são escritas em
+ sequência por um buffer próprio e o índice (a posição de cada partida no
+ arquivo) fica em memória até o close, que o grava no fim e completa o
+ cabeçalho. Pode ser usado como GameHandler de um PgnReplay para converter um
+ arquivo PGN: nesse caso as partidas entram na ordem em que as threads as
+ terminam, não na do arquivo, e as inválidas são descartadas.
+ */
+public class GameArchiveWriter implements GameHandler, Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	private long position = GameArchive.HEADER_SIZE;
+	private long[] offsets = new long[1024];
+	private int count;
+	private boolean closed;
+	
+	public GameArchiveWriter(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		channel.position(GameArchive.HEADER_SIZE);
+	}
+	
+	/*Grava uma partida: a posição inicial em FEN (null para a posição padrão), os
+	 lances no formato de Move e o resultado (ver GameArchive.WHITE_WINS etc.)*/
+	public synchronized void add(String fen, int[] moves, int moveCount, int result) throws IOException {
+		if (closed) {
+			throw new IllegalStateException("Archive already closed");
+		}
+		if (moveCount > GameArchive.MAX_MOVES) {
+			throw new IllegalArgumentException("Too many moves: " + moveCount);
+		}
+		byte[] fenBytes = fen == null ? null : fen.getBytes(StandardCharsets.US_ASCII);
+		if (fenBytes != null && fenBytes.length > GameArchive.MAX_FEN_LENGTH) {
+			throw new IllegalArgumentException("FEN too long: " + fen);
+		}
+		if (count == offsets.length) {
+			offsets = Arrays.copyOf(offsets, count * 2);
+		}
+		offsets[count++] = position;
+		
+		ensure(GameArchive.GAME_HEADER_SIZE);
+		buffer.put((byte) result);
+		buffer.put((byte) (fenBytes == null ? 0 : GameArchive.HAS_FEN));
+		buffer.putShort((short) moveCount);
+		position += GameArchive.GAME_HEADER_SIZE;
+		if (fenBytes != null) {
+			ensure(1 + fenBytes.length);
+			buffer.put((byte) fenBytes.length);
+			buffer.put(fenBytes);
+			position += 1 + fenBytes.length;
+		}
+		for (int i = 0; i < moveCount; i++) {
+			ensure(2);
+			buffer.putShort((short) Move.compact(moves[i]));
+		}
+		position += 2L * moveCount;
+	}
+	
+	//Grava a partida a partir da posição inicial da ChessMatch até a posição atual
+	public void add(String fen, ChessMatch chessMatch, int result) throws IOException {
+		int[] moves = new int[chessMatch.getPly()];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = chessMatch.getMove(i);
+		}
+		add(fen, moves, moves.length, result);
+	}
+	
+	//Grava as partidas válidas vindas de um PgnReplay
+	@Override
+	public void handle(PgnGame game) {
+		if (!game.isValid()) {
+			return;
+		}
+		int[] moves = new int[game.getMoveCount()];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = game.getMove(i);
+		}
+		try {
+			add(game.getTag("FEN"), moves, moves.length, GameArchive.result(game.getResult()));
+		}
+		catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	public synchronized int size() {
+		return count;
+	}
+	
+	//Grava o índice e o cabeçalho; só depois disso o arquivo pode ser aberto pelo GameArchive
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			long indexOffset = position;
+			for (int i = 0; i < count; i++) {
+				ensure(8);
+				buffer.putLong(offsets[i]);
+			}
+			flush();
+			
+			ByteBuffer header = ByteBuffer.allocate(GameArchive.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			header.putInt(GameArchive.MAGIC);
+			header.putInt(GameArchive.VERSION);
+			header.putLong(count);
+			header.putLong(indexOffset);
+			header.flip();
+			channel.write(header, 0);
+		}
+		finally {
+			channel.close();
+		}
+	}
+	
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush();
+		}
+	}
+	
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
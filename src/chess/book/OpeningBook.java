@@ -0,0 +1,180 @@
+package chess.book;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+
+/*
+ Livro de aberturas gravado pelo OpeningBookBuilder e lido direto da memória
+ mapeada. Formato (little-endian): magic "CBK1" (int), versão (int), número de
+ entradas (long) e as entradas de 16 bytes, ordenadas pela chave de Zobrist da
+ posição (ChessMatch.getBookKey, com o en passant só quando a captura é legal):
+ chave (long), lance compacto (int, ver Move.compact) e peso (int).
+ As entradas da mesma posição ficam juntas, da de maior peso para a de menor.
+
+ A consulta é uma busca binária pela chave, sem alocar nada, e os buffers são
+ lidos só com acesso absoluto: o mesmo OpeningBook atende quantas partidas e
+ threads for preciso ao mesmo tempo. Os lances do livro são conferidos contra
+ a posição antes de serem devolvidos, então uma colisão de chaves não produz
+ lance ilegal.
+ */
+public class OpeningBook implements Closeable {
+
+	static final int MAGIC = 0x314B4243;
+	//Versão 2: chaves do getBookKey; os livros da versão 1 precisam ser refeitos
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 16;
+	static final int ENTRY_SIZE = 16;
+	
+	//Segmentos de 1 GB; como as entradas têm 16 bytes e o cabeçalho também, nenhuma fica entre dois segmentos
+	private static final int SEGMENT_BITS = 30;
+	private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+	
+	private final FileChannel channel;
+	private final MappedByteBuffer[] segments;
+	private final long count;
+	
+	public OpeningBook(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			long length = channel.size();
+			int segmentCount = (int) ((length + SEGMENT_SIZE - 1) >>> SEGMENT_BITS);
+			segments = new MappedByteBuffer[Math.max(1, segmentCount)];
+			for (int i = 0; i < segments.length; i++) {
+				long start = (long) i << SEGMENT_BITS;
+				segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, Math.min(SEGMENT_SIZE, length - start)));
+				segments[i].order(ByteOrder.LITTLE_ENDIAN);
+			}
+			if (length < HEADER_SIZE || segments[0].getInt(0) != MAGIC) {
+				throw new ChessException("Not an opening book: " + path);
+			}
+			if (segments[0].getInt(4) != VERSION) {
+				throw new ChessException("Unsupported opening book version " + segments[0].getInt(4) + ": " + path);
+			}
+			count = segments[0].getLong(8);
+			if (count < 0 || HEADER_SIZE + count * ENTRY_SIZE > length) {
+				throw new ChessException("Truncated opening book: " + path);
+			}
+		}
+		catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+	
+	public long size() {
+		return count;
+	}
+	
+	//Índice da primeira entrada da posição com a chave fornecida, ou -1 se ela não estiver no livro
+	public long find(long key) {
+		long low = 0;
+		long high = count;
+		while (low < high) {
+			long middle = (low + high) >>> 1;
+			if (getKey(middle) < key) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low < count && getKey(low) == key ? low : -1;
+	}
+	
+	public long getKey(long index) {
+		return segment(index).getLong(position(index));
+	}
+	
+	public int getCompactMove(long index) {
+		return segment(index).getInt(position(index) + 8);
+	}
+	
+	public int getWeight(long index) {
+		return segment(index).getInt(position(index) + 12);
+	}
+	
+	/*Coloca no buffer os lances do livro para a posição atual da partida, do mais
+	 jogado para o menos jogado; retorna false se a posição não estiver no livro*/
+	public boolean probe(ChessMatch chessMatch, MoveList moves) {
+		moves.clear();
+		long key = chessMatch.getBookKey();
+		for (long i = find(key); i >= 0 && i < count && getKey(i) == key; i++) {
+			int move = toMove(chessMatch, getCompactMove(i));
+			if (move != Move.NONE) {
+				moves.add(move);
+			}
+		}
+		return !moves.isEmpty();
+	}
+	
+	//Lance do livro mais jogado na posição atual, ou Move.NONE se não houver
+	public int bestMove(ChessMatch chessMatch) {
+		long key = chessMatch.getBookKey();
+		for (long i = find(key); i >= 0 && i < count && getKey(i) == key; i++) {
+			int move = toMove(chessMatch, getCompactMove(i));
+			if (move != Move.NONE) {
+				return move;
+			}
+		}
+		return Move.NONE;
+	}
+	
+	/*Sorteia um lance do livro com probabilidade proporcional ao peso, para o bot
+	 não repetir sempre a mesma abertura. random é qualquer valor aleatório
+	 (por exemplo de ThreadLocalRandom); retorna Move.NONE fora do livro*/
+	public int pickMove(ChessMatch chessMatch, long random) {
+		long key = chessMatch.getBookKey();
+		long first = find(key);
+		if (first < 0) {
+			return Move.NONE;
+		}
+		long total = 0;
+		for (long i = first; i < count && getKey(i) == key; i++) {
+			if (toMove(chessMatch, getCompactMove(i)) != Move.NONE) {
+				total += getWeight(i);
+			}
+		}
+		if (total == 0) {
+			return Move.NONE;
+		}
+		long target = Math.floorMod(random, total);
+		for (long i = first; i < count && getKey(i) == key; i++) {
+			int move = toMove(chessMatch, getCompactMove(i));
+			if (move != Move.NONE) {
+				target -= getWeight(i);
+				if (target < 0) {
+					return move;
+				}
+			}
+		}
+		return Move.NONE;
+	}
+	
+	//Fecha o arquivo; a memória mapeada é liberada quando os buffers forem coletados
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+	
+	private static int toMove(ChessMatch chessMatch, int compact) {
+		return chessMatch.findMove(compact & 63, (compact >>> 6) & 63, Move.compactPromotion(compact));
+	}
+	
+	private MappedByteBuffer segment(long index) {
+		return segments[(int) ((HEADER_SIZE + index * ENTRY_SIZE) >>> SEGMENT_BITS)];
+	}
+	
+	private int position(long index) {
+		return (int) ((HEADER_SIZE + index * ENTRY_SIZE) & (SEGMENT_SIZE - 1));
+	}
+}
@@ -0,0 +1,234 @@
+package chess.book;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.archive.GameArchive;
+import chess.pgn.GameHandler;
+import chess.pgn.PgnGame;
+
+/*
+ Monta um livro de aberturas a partir de partidas: para cada um dos primeiros
+ lances de cada partida guarda a chave da posição, o lance e um peso, que vale
+ 2 se quem jogou o lance venceu, 1 no empate (ou sem resultado) e 0 na derrota.
+ As entradas ficam em memória até o write, que as ordena, soma os pesos do
+ mesmo lance na mesma posição, descarta os lances de peso 0 e grava o arquivo
+ lido pelo OpeningBook. Pode ser usado como GameHandler de um PgnReplay.
+ */
+public class OpeningBookBuilder implements GameHandler {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final int maxPly;
+	private long[] keys = new long[1 << 12];
+	private int[] moves = new int[1 << 12];
+	private int[] weights = new int[1 << 12];
+	private int size;
+	
+	//maxPly: quantos lances de cada partida entram no livro
+	public OpeningBookBuilder(int maxPly) {
+		this.maxPly = maxPly;
+	}
+	
+	//Quantidade de entradas antes de juntar as repetidas
+	public synchronized int size() {
+		return size;
+	}
+	
+	/*Acrescenta os primeiros lances de uma partida que começa na posição FEN (null
+	 para a posição padrão), com os lances no formato de Move*/
+	public void addGame(String fen, int[] gameMoves, int moveCount, int result) {
+		ChessMatch chessMatch = fen == null ? new ChessMatch() : new ChessMatch(fen);
+		int plies = Math.min(moveCount, maxPly);
+		long[] gameKeys = new long[plies];
+		int[] gameWeights = new int[plies];
+		for (int i = 0; i < plies; i++) {
+			gameKeys[i] = chessMatch.getBookKey();
+			gameWeights[i] = weight(result, chessMatch.getTurn());
+			chessMatch.makeMove(gameMoves[i]);
+		}
+		synchronized (this) {
+			for (int i = 0; i < plies; i++) {
+				append(gameKeys[i], Move.compact(gameMoves[i]), gameWeights[i]);
+			}
+		}
+	}
+	
+	//Acrescenta todas as partidas de um GameArchive
+	public void addArchive(GameArchive archive) {
+		int[] gameMoves = new int[maxPly];
+		for (int game = 0; game < archive.size(); game++) {
+			String fen = archive.getFen(game);
+			ChessMatch chessMatch = fen == null ? new ChessMatch() : new ChessMatch(fen);
+			int plies = Math.min(archive.getMoveCount(game), maxPly);
+			archive.replay(game, plies, chessMatch);
+			for (int i = 0; i < plies; i++) {
+				gameMoves[i] = chessMatch.getMove(i);
+			}
+			addGame(fen, gameMoves, plies, archive.getResult(game));
+		}
+	}
+	
+	//Acrescenta as partidas válidas vindas de um PgnReplay
+	@Override
+	public void handle(PgnGame game) {
+		if (!game.isValid()) {
+			return;
+		}
+		int plies = Math.min(game.getMoveCount(), maxPly);
+		int[] gameMoves = new int[plies];
+		for (int i = 0; i < plies; i++) {
+			gameMoves[i] = game.getMove(i);
+		}
+		addGame(game.getTag("FEN"), gameMoves, plies, GameArchive.result(game.getResult()));
+	}
+	
+	/*Ordena e junta as entradas e grava o livro. Dentro de cada posição os lances
+	 ficam do maior peso para o menor, que é a ordem em que o OpeningBook os devolve*/
+	public synchronized int write(Path path) throws IOException {
+		sort(0, size - 1);
+		int count = 0;
+		for (int i = 0; i < size;) {
+			long weight = 0;
+			int j = i;
+			for (; j < size && keys[j] == keys[i] && moves[j] == moves[i]; j++) {
+				weight += weights[j];
+			}
+			if (weight > 0) {
+				keys[count] = keys[i];
+				moves[count] = moves[i];
+				weights[count++] = (int) Math.min(weight, Integer.MAX_VALUE);
+			}
+			i = j;
+		}
+		size = count;
+		for (int i = 0; i < count;) {
+			int j = i + 1;
+			while (j < count && keys[j] == keys[i]) {
+				j++;
+			}
+			sortByWeight(i, j);
+			i = j;
+		}
+		
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			buffer.putInt(OpeningBook.MAGIC);
+			buffer.putInt(OpeningBook.VERSION);
+			buffer.putLong(count);
+			for (int i = 0; i < count; i++) {
+				if (buffer.remaining() < OpeningBook.ENTRY_SIZE) {
+					flush(channel, buffer);
+				}
+				buffer.putLong(keys[i]);
+				buffer.putInt(moves[i]);
+				buffer.putInt(weights[i]);
+			}
+			flush(channel, buffer);
+		}
+		return count;
+	}
+	
+	//Peso do lance para quem o jogou, pelo resultado da partida (turn ímpar: brancas)
+	private static int weight(int result, int turn) {
+		boolean white = turn % 2 == 1;
+		if (result == GameArchive.WHITE_WINS) {
+			return white ? 2 : 0;
+		}
+		if (result == GameArchive.BLACK_WINS) {
+			return white ? 0 : 2;
+		}
+		return 1;
+	}
+	
+	private void append(long key, int move, int weight) {
+		if (size == keys.length) {
+			keys = Arrays.copyOf(keys, size * 2);
+			moves = Arrays.copyOf(moves, size * 2);
+			weights = Arrays.copyOf(weights, size * 2);
+		}
+		keys[size] = key;
+		moves[size] = move;
+		weights[size++] = weight;
+	}
+	
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/*Quicksort dos três vetores juntos por (chave, lance), sem criar objetos; a
+	 recursão vai sempre para a metade menor, então a pilha fica em O(log n)*/
+	private void sort(int low, int high) {
+		while (high - low > 16) {
+			int middle = (low + high) >>> 1;
+			if (compare(middle, low) < 0) swap(middle, low);
+			if (compare(high, low) < 0) swap(high, low);
+			if (compare(high, middle) < 0) swap(high, middle);
+			long pivotKey = keys[middle];
+			int pivotMove = moves[middle];
+			int i = low;
+			int j = high;
+			while (i <= j) {
+				while (compare(i, pivotKey, pivotMove) < 0) i++;
+				while (compare(j, pivotKey, pivotMove) > 0) j--;
+				if (i <= j) {
+					swap(i++, j--);
+				}
+			}
+			if (j - low < high - i) {
+				sort(low, j);
+				low = i;
+			}
+			else {
+				sort(i, high);
+				high = j;
+			}
+		}
+		for (int i = low + 1; i <= high; i++) {
+			for (int j = i; j > low && compare(j, j - 1) < 0; j--) {
+				swap(j, j - 1);
+			}
+		}
+	}
+	
+	//Poucos lances por posição: ordenação por inserção basta
+	private void sortByWeight(int from, int to) {
+		for (int i = from + 1; i < to; i++) {
+			for (int j = i; j > from && weights[j] > weights[j - 1]; j--) {
+				swap(j, j - 1);
+			}
+		}
+	}
+	
+	private int compare(int a, int b) {
+		return compare(a, keys[b], moves[b]);
+	}
+	
+	private int compare(int a, long key, int move) {
+		int c = Long.compare(keys[a], key);
+		return c != 0 ? c : Integer.compare(moves[a], move);
+	}
+	
+	private void swap(int a, int b) {
+		long key = keys[a];
+		keys[a] = keys[b];
+		keys[b] = key;
+		int move = moves[a];
+		moves[a] = moves[b];
+		moves[b] = move;
+		int weight = weights[a];
+		weights[a] = weights[b];
+		weights[b] = weight;
+	}
+}
@@ -0,0 +1,11 @@
+package chess.pgn;
+
+/*
+ Recebe cada partida reproduzida pelo PgnReplay, na thread que a reproduziu:
+ a implementação precisa ser segura para várias threads e não deve guardar o
+ PgnGame, que é reaproveitado na partida seguinte.
+ */
+public interface GameHandler {
+
+	void handle(PgnGame game);
+}
@@ -0,0 +1,257 @@
+package chess.pgn;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import chess.ChessException;
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+
+/*
+ Uma partida de um arquivo PGN, interpretada e reproduzida numa ChessMatch:
+ as tags do cabeçalho, os lances (no formato de Move), o resultado e, se algum
+ lance não puder ser lido ou não for legal, a mensagem de erro. Cada thread
+ reaproveita o mesmo objeto de partida em partida, então quem o recebe (ver
+ GameHandler) deve copiar o que quiser guardar.
+ */
+public class PgnGame {
+
+	private String[] tagNames = new String[16];
+	private String[] tagValues = new String[16];
+	private int tagCount;
+	private int[] moves = new int[256];
+	private int moveCount;
+	private String result;
+	private String error;
+	private ChessMatch chessMatch;
+	private final MoveList legal = new MoveList();
+	
+	/*Interpreta o texto da partida (como devolvido pelo PgnReader) e reproduz os
+	 lances. Comentários, variantes, NAGs e números de lance são ignorados*/
+	public void replay(byte[] text) {
+		tagCount = 0;
+		moveCount = 0;
+		result = null;
+		error = null;
+		chessMatch = null;
+		
+		int i = 0;
+		int length = text.length;
+		while (i < length) {
+			byte c = text[i];
+			//Um ")" solto (variante mal fechada) também é ignorado
+			if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '.' || c == ')') {
+				i++;
+			}
+			else if (c == '[') {
+				i = readTag(text, i + 1);
+			}
+			else if (c == '{') {
+				i = skipTo(text, i + 1, (byte) '}') + 1;
+			}
+			else if (c == ';' || (c == '%' && (i == 0 || text[i - 1] == '\n'))) {
+				i = skipTo(text, i + 1, (byte) '\n') + 1;
+			}
+			else if (c == '(') {
+				i = skipVariation(text, i + 1);
+			}
+			else if (c == '$') {
+				i = tokenEnd(text, i + 1);
+			}
+			else {
+				int end = tokenEnd(text, i);
+				if (error == null && result == null) {
+					readToken(text, i, end);
+				}
+				i = end;
+			}
+		}
+		if (chessMatch == null) {
+			start();
+		}
+	}
+	
+	public int getTagCount() {
+		return tagCount;
+	}
+	
+	public String getTagName(int index) {
+		return tagNames[index];
+	}
+	
+	public String getTagValue(int index) {
+		return tagValues[index];
+	}
+	
+	//Valor da tag com o nome fornecido, ou null se não houver
+	public String getTag(String name) {
+		for (int i = 0; i < tagCount; i++) {
+			if (tagNames[i].equals(name)) {
+				return tagValues[i];
+			}
+		}
+		return null;
+	}
+	
+	public int getMoveCount() {
+		return moveCount;
+	}
+	
+	public int getMove(int index) {
+		return moves[index];
+	}
+	
+	//Resultado no fim dos lances ("1-0", "0-1", "1/2-1/2" ou "*"), ou null se faltar
+	public String getResult() {
+		return result;
+	}
+	
+	public boolean isValid() {
+		return error == null;
+	}
+	
+	public String getError() {
+		return error;
+	}
+	
+	//Partida na posição final (ou na do lance com erro)
+	public ChessMatch getChessMatch() {
+		return chessMatch;
+	}
+	
+	//Lê um token dos lances: resultado, número de lance ou lance em SAN
+	private void readToken(byte[] text, int start, int end) {
+		if (isResult(text, start, end)) {
+			result = new String(text, start, end - start, StandardCharsets.US_ASCII);
+			return;
+		}
+		//Número do lance colado no lance ("12.e4" ou "12...e5"); "0-0" é roque
+		if (text[start] >= '0' && text[start] <= '9' && !(end - start >= 3 && text[start] == '0' && text[start + 1] == '-')) {
+			while (start < end && text[start] >= '0' && text[start] <= '9') {
+				start++;
+			}
+			while (start < end && text[start] == '.') {
+				start++;
+			}
+			if (start == end) {
+				return;
+			}
+		}
+		if (chessMatch == null && !start()) {
+			return;
+		}
+		int move = San.parse(chessMatch, text, start, end, legal);
+		if (move == Move.NONE) {
+			error = "Illegal or ambiguous move '" + new String(text, start, end - start, StandardCharsets.UTF_8)
+					+ "' at ply " + (moveCount + 1);
+			return;
+		}
+		chessMatch.makeMove(move);
+		if (moveCount == moves.length) {
+			moves = Arrays.copyOf(moves, moveCount * 2);
+		}
+		moves[moveCount++] = move;
+	}
+	
+	//Cria a partida na posição inicial ou na da tag FEN, se houver
+	private boolean start() {
+		String fen = getTag("FEN");
+		try {
+			chessMatch = fen == null ? new ChessMatch() : new ChessMatch(fen);
+			return true;
+		}
+		catch (ChessException e) {
+			chessMatch = new ChessMatch();
+			error = e.getMessage();
+			return false;
+		}
+	}
+	
+	//[Nome "valor"], com \" e \\ escapados dentro do valor
+	private int readTag(byte[] text, int i) {
+		int nameStart = i;
+		while (i < text.length && text[i] != ' ' && text[i] != '"' && text[i] != ']') {
+			i++;
+		}
+		String name = new String(text, nameStart, i - nameStart, StandardCharsets.US_ASCII);
+		while (i < text.length && text[i] != '"' && text[i] != ']') {
+			i++;
+		}
+		String value = "";
+		if (i < text.length && text[i] == '"') {
+			int valueStart = ++i;
+			boolean escaped = false;
+			while (i < text.length && text[i] != '"' && text[i] != '\n') {
+				if (text[i] == '\\') {
+					escaped = true;
+					i++;
+				}
+				i++;
+			}
+			value = new String(text, valueStart, Math.min(i, text.length) - valueStart, StandardCharsets.UTF_8);
+			if (escaped) {
+				value = value.replace("\\\"", "\"").replace("\\\\", "\\");
+			}
+		}
+		i = skipTo(text, i, (byte) ']') + 1;
+		if (tagCount == tagNames.length) {
+			tagNames = Arrays.copyOf(tagNames, tagCount * 2);
+			tagValues = Arrays.copyOf(tagValues, tagCount * 2);
+		}
+		tagNames[tagCount] = name;
+		tagValues[tagCount++] = value;
+		return i;
+	}
+	
+	private static boolean isResult(byte[] text, int start, int end) {
+		int length = end - start;
+		if (length == 1) {
+			return text[start] == '*';
+		}
+		if (length == 3) {
+			return (text[start] == '1' && text[start + 1] == '-' && text[start + 2] == '0')
+					|| (text[start] == '0' && text[start + 1] == '-' && text[start + 2] == '1');
+		}
+		return length == 7 && text[start] == '1' && text[start + 1] == '/' && text[start + 2] == '2'
+				&& text[start + 3] == '-' && text[start + 4] == '1' && text[start + 5] == '/' && text[start + 6] == '2';
+	}
+	
+	//Fim de um token: espaço ou início de comentário ou variante
+	private static int tokenEnd(byte[] text, int i) {
+		while (i < text.length) {
+			byte c = text[i];
+			if (c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '{' || c == '(' || c == ')' || c == ';') {
+				break;
+			}
+			i++;
+		}
+		return i;
+	}
+	
+	private static int skipTo(byte[] text, int i, byte target) {
+		while (i < text.length && text[i] != target) {
+			i++;
+		}
+		return i;
+	}
+	
+	//Pula uma variante, inclusive as que têm outras variantes e comentários dentro
+	private static int skipVariation(byte[] text, int i) {
+		int depth = 1;
+		while (i < text.length && depth > 0) {
+			byte c = text[i];
+			if (c == '{') {
+				i = skipTo(text, i + 1, (byte) '}');
+			}
+			else if (c == '(') {
+				depth++;
+			}
+			else if (c == ')') {
+				depth--;
+			}
+			i++;
+		}
+		return i;
+	}
+}
@@ -0,0 +1,112 @@
+package chess.pgn;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/*
+ Lê um arquivo PGN em sequência, com um buffer próprio, e devolve o texto de
+ cada partida (cabeçalho e lances) como bytes, sem interpretá-lo: separar as
+ partidas é barato e pode ficar numa thread só, enquanto a interpretação (ver
+ PgnGame) é feita em paralelo. Uma partida começa na primeira linha de
+ cabeçalho ("[") que aparece depois dos lances da anterior.
+ */
+public class PgnReader implements Closeable {
+
+	private static final int BUFFER_SIZE = 1 << 16;
+	
+	private final InputStream in;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int position;
+	private int limit;
+	
+	//Texto da partida em montagem, e a linha de cabeçalho que já pertence à próxima
+	private byte[] game = new byte[4096];
+	private int gameLength;
+	private byte[] line = new byte[256];
+	private int lineLength;
+	private boolean pendingLine;
+	
+	public PgnReader(InputStream in) {
+		this.in = in;
+	}
+	
+	//Texto da próxima partida, ou null no fim do arquivo
+	public byte[] nextGame() throws IOException {
+		gameLength = 0;
+		boolean sawMoves = false;
+		if (pendingLine) {
+			pendingLine = false;
+			appendLine();
+		}
+		while (readLine()) {
+			if (lineLength > 0 && line[0] == '[') {
+				if (sawMoves) {
+					pendingLine = true;
+					return Arrays.copyOf(game, gameLength);
+				}
+			}
+			else if (!isBlank()) {
+				sawMoves = true;
+			}
+			appendLine();
+		}
+		return sawMoves || gameLength > 0 && !isBlank(game, gameLength) ? Arrays.copyOf(game, gameLength) : null;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		in.close();
+	}
+	
+	//Lê a próxima linha (sem o fim de linha) para line; retorna false no fim do arquivo
+	private boolean readLine() throws IOException {
+		lineLength = 0;
+		boolean any = false;
+		while (true) {
+			if (position == limit) {
+				limit = in.read(buffer, 0, BUFFER_SIZE);
+				position = 0;
+				if (limit <= 0) {
+					limit = 0;
+					return any;
+				}
+			}
+			any = true;
+			byte c = buffer[position++];
+			if (c == '\n') {
+				return true;
+			}
+			if (c == '\r') {
+				continue;
+			}
+			if (lineLength == line.length) {
+				line = Arrays.copyOf(line, lineLength * 2);
+			}
+			line[lineLength++] = c;
+		}
+	}
+	
+	private void appendLine() {
+		if (gameLength + lineLength + 1 > game.length) {
+			game = Arrays.copyOf(game, Math.max(game.length * 2, gameLength + lineLength + 1));
+		}
+		System.arraycopy(line, 0, game, gameLength, lineLength);
+		gameLength += lineLength;
+		game[gameLength++] = '\n';
+	}
+	
+	private boolean isBlank() {
+		return isBlank(line, lineLength);
+	}
+	
+	private static boolean isBlank(byte[] text, int length) {
+		for (int i = 0; i < length; i++) {
+			if (text[i] != ' ' && text[i] != '\t' && text[i] != '\n') {
+				return false;
+			}
+		}
+		return true;
+	}
+}
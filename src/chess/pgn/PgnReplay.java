@@ -0,0 +1,114 @@
+package chess.pgn;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/*
+ Reproduz todas as partidas de um arquivo PGN em várias threads. A thread de
+ quem chama lê o arquivo e separa as partidas (PgnReader); as threads de
+ trabalho interpretam e reproduzem cada uma (PgnGame) e a entregam ao
+ GameHandler. A fila entre as duas partes tem tamanho fixo, então a memória
+ usada não depende do tamanho do arquivo: se as threads de trabalho não dão
+ conta, a leitura espera.
+ */
+public class PgnReplay {
+
+	//Marca de fim para as threads de trabalho
+	private static final byte[] END = new byte[0];
+	
+	private final int threads;
+	private final int queueCapacity;
+	
+	public PgnReplay(int threads) {
+		this(threads, threads * 64);
+	}
+	
+	public PgnReplay(int threads, int queueCapacity) {
+		if (threads < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("Thread count and queue capacity must be at least 1");
+		}
+		this.threads = threads;
+		this.queueCapacity = queueCapacity;
+	}
+	
+	//Lê e reproduz o arquivo inteiro; handler pode ser null se só interessarem as contagens
+	public ReplayStats run(InputStream in, GameHandler handler) throws IOException {
+		long start = System.nanoTime();
+		ReplayStats stats = new ReplayStats();
+		BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(queueCapacity);
+		RuntimeException[] failure = new RuntimeException[1];
+		
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Thread(() -> {
+				PgnGame game = new PgnGame();
+				try {
+					byte[] text;
+					while ((text = queue.take()) != END) {
+						game.replay(text);
+						stats.addGame(game);
+						if (handler != null) {
+							handler.handle(game);
+						}
+					}
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				catch (RuntimeException e) {
+					//Erro do handler: guarda o primeiro e continua esvaziando a fila para a leitura não travar
+					synchronized (failure) {
+						if (failure[0] == null) {
+							failure[0] = e;
+						}
+					}
+					drain(queue);
+				}
+			}, "pgn-replay-" + i);
+			workers[i].start();
+		}
+		
+		try (PgnReader reader = new PgnReader(in)) {
+			byte[] text;
+			while ((text = reader.nextGame()) != null) {
+				stats.addBytes(text.length);
+				queue.put(text);
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("PGN replay interrupted");
+		}
+		finally {
+			try {
+				for (int i = 0; i < threads; i++) {
+					queue.put(END);
+				}
+				for (Thread worker : workers) {
+					worker.join();
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			stats.setNanos(System.nanoTime() - start);
+		}
+		if (failure[0] != null) {
+			throw failure[0];
+		}
+		return stats;
+	}
+	
+	private static void drain(BlockingQueue<byte[]> queue) {
+		try {
+			while (queue.take() != END) {
+			}
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
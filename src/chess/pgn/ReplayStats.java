@@ -0,0 +1,64 @@
+package chess.pgn;
+
+import java.util.concurrent.atomic.LongAdder;
+
+//Contadores de uma reprodução de arquivo PGN, somados pelas threads sem trava
+public class ReplayStats {
+
+	private final LongAdder games = new LongAdder();
+	private final LongAdder invalidGames = new LongAdder();
+	private final LongAdder moves = new LongAdder();
+	private final LongAdder bytes = new LongAdder();
+	private volatile long nanos;
+	
+	void addGame(PgnGame game) {
+		games.increment();
+		moves.add(game.getMoveCount());
+		if (!game.isValid()) {
+			invalidGames.increment();
+		}
+	}
+	
+	void addBytes(long count) {
+		bytes.add(count);
+	}
+	
+	void setNanos(long nanos) {
+		this.nanos = nanos;
+	}
+	
+	public long getGames() {
+		return games.sum();
+	}
+	
+	//Partidas com algum lance ilegal, ambíguo ou ilegível (os lances até ele contam)
+	public long getInvalidGames() {
+		return invalidGames.sum();
+	}
+	
+	public long getMoves() {
+		return moves.sum();
+	}
+	
+	public long getBytes() {
+		return bytes.sum();
+	}
+	
+	public long getMillis() {
+		return nanos / 1_000_000;
+	}
+	
+	public double getGamesPerSecond() {
+		return getGames() * 1e9 / Math.max(1, nanos);
+	}
+	
+	public double getMovesPerSecond() {
+		return getMoves() * 1e9 / Math.max(1, nanos);
+	}
+	
+	@Override
+	public String toString() {
+		return String.format("%,d games (%,d invalid), %,d moves, %,d bytes in %,d ms: %,.0f games/s, %,.0f moves/s",
+				getGames(), getInvalidGames(), getMoves(), getBytes(), getMillis(), getGamesPerSecond(), getMovesPerSecond());
+	}
+}
@@ -0,0 +1,207 @@
+package chess.pgn;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveList;
+import chess.PieceType;
+
+/*
+ Notação algébrica padrão (SAN), a dos arquivos PGN: "e4", "Nbd7", "exd6",
+ "O-O", "e8=Q+". A leitura trabalha direto sobre os bytes do arquivo (sem
+ criar Strings) e procura o lance entre os lances legais da partida.
+ */
+public final class San {
+
+	private San() {
+	}
+	
+	/*Lance da partida descrito pelos bytes text[start, end), ou Move.NONE se não
+	 houver nenhum lance legal que corresponda ou se houver mais de um (ambíguo).
+	 Gera só os lances pseudo-legais e testa a legalidade apenas dos candidatos,
+	 que quase sempre são um só. moves é um buffer de trabalho*/
+	public static int parse(ChessMatch chessMatch, byte[] text, int start, int end, MoveList moves) {
+		//Sufixos de xeque, mate e comentário (+, #, !, ?) não mudam o lance
+		while (end > start && (text[end - 1] == '+' || text[end - 1] == '#' || text[end - 1] == '!' || text[end - 1] == '?')) {
+			end--;
+		}
+		if (end - start < 2) {
+			return Move.NONE;
+		}
+		chessMatch.generateMoves(moves);
+		
+		//ROQUE: "O-O" e "O-O-O" (alguns arquivos usam zeros)
+		if (text[start] == 'O' || text[start] == '0') {
+			int length = end - start;
+			if (length != 3 && length != 5) {
+				return Move.NONE;
+			}
+			for (int i = start; i < end; i++) {
+				if (text[i] != text[start] && text[i] != '-') {
+					return Move.NONE;
+				}
+			}
+			for (int i = 0; i < moves.size(); i++) {
+				int move = moves.get(i);
+				if ((Move.flags(move) & Move.CASTLING) != 0 && (Move.to(move) > Move.from(move)) == (length == 3)) {
+					return chessMatch.isLegal(move) ? move : Move.NONE;
+				}
+			}
+			return Move.NONE;
+		}
+		
+		int i = start;
+		PieceType type = PieceType.PAWN;
+		PieceType letterType = pieceType(text[i]);
+		if (letterType != null) {
+			type = letterType;
+			i++;
+		}
+		
+		//Promoção: "e8=Q" ou, em arquivos mais antigos, "e8Q"
+		PieceType promotion = null;
+		if (type == PieceType.PAWN && end - i >= 3) {
+			PieceType last = pieceType(text[end - 1]);
+			if (last != null) {
+				promotion = last;
+				end -= text[end - 2] == '=' ? 2 : 1;
+			}
+		}
+		if (end - i < 2) {
+			return Move.NONE;
+		}
+		int to = square(text[end - 2], text[end - 1]);
+		if (to < 0) {
+			return Move.NONE;
+		}
+		
+		//O que sobra entre a peça e o destino: coluna e/ou linha de origem e o "x" da captura
+		int fromColumn = -1;
+		int fromRow = -1;
+		for (int j = i; j < end - 2; j++) {
+			byte c = text[j];
+			if (c >= 'a' && c <= 'h') {
+				fromColumn = c - 'a';
+			}
+			else if (c >= '1' && c <= '8') {
+				fromRow = '8' - c;
+			}
+			else if (c != 'x' && c != ':' && c != '-') {
+				return Move.NONE;
+			}
+		}
+		
+		ChessBoard board = chessMatch.getBoard();
+		int found = Move.NONE;
+		for (int j = 0; j < moves.size(); j++) {
+			int move = moves.get(j);
+			int from = Move.from(move);
+			if (Move.to(move) != to || board.pieceAt(from).getType() != type || Move.promotion(move) != promotion) {
+				continue;
+			}
+			if ((fromColumn >= 0 && ChessBoard.column(from) != fromColumn) || (fromRow >= 0 && ChessBoard.row(from) != fromRow)) {
+				continue;
+			}
+			//Uma peça cravada não conta na ambiguidade: "Nd7" vale mesmo com outro cavalo cravado
+			if (!chessMatch.isLegal(move)) {
+				continue;
+			}
+			if (found != Move.NONE) {
+				return Move.NONE;
+			}
+			found = move;
+		}
+		return found;
+	}
+	
+	public static int parse(ChessMatch chessMatch, String san, MoveList moves) {
+		byte[] text = new byte[san.length()];
+		for (int i = 0; i < text.length; i++) {
+			char c = san.charAt(i);
+			text[i] = c < 128 ? (byte) c : (byte) '?';
+		}
+		return parse(chessMatch, text, 0, text.length, moves);
+	}
+	
+	/*Escreve o lance (legal na posição atual) em SAN, com a desambiguação mínima
+	 e o sufixo de xeque ou mate. legal é um buffer de trabalho*/
+	public static String format(ChessMatch chessMatch, int move, MoveList legal) {
+		StringBuilder sb = new StringBuilder(8);
+		int from = Move.from(move);
+		int to = Move.to(move);
+		ChessPiece piece = chessMatch.getBoard().pieceAt(from);
+		if ((Move.flags(move) & Move.CASTLING) != 0) {
+			sb.append(to > from ? "O-O" : "O-O-O");
+		}
+		else if (piece.getType() == PieceType.PAWN) {
+			if (Move.isCapture(move)) {
+				sb.append((char) ('a' + ChessBoard.column(from))).append('x');
+			}
+			appendSquare(sb, to);
+			if (Move.isPromotion(move)) {
+				sb.append('=').append(Move.letter(Move.promotion(move)));
+			}
+		}
+		else {
+			sb.append(Move.letter(piece.getType()));
+			//Outras peças do mesmo tipo que também podem ir para a casa
+			chessMatch.generateLegalMoves(legal);
+			boolean ambiguous = false;
+			boolean sameColumn = false;
+			boolean sameRow = false;
+			for (int i = 0; i < legal.size(); i++) {
+				int other = legal.get(i);
+				int otherFrom = Move.from(other);
+				if (otherFrom != from && Move.to(other) == to && chessMatch.getBoard().pieceAt(otherFrom).getType() == piece.getType()) {
+					ambiguous = true;
+					sameColumn |= ChessBoard.column(otherFrom) == ChessBoard.column(from);
+					sameRow |= ChessBoard.row(otherFrom) == ChessBoard.row(from);
+				}
+			}
+			if (ambiguous) {
+				if (!sameColumn) {
+					sb.append((char) ('a' + ChessBoard.column(from)));
+				}
+				else if (!sameRow) {
+					sb.append((char) ('8' - ChessBoard.row(from)));
+				}
+				else {
+					appendSquare(sb, from);
+				}
+			}
+			if (Move.isCapture(move)) {
+				sb.append('x');
+			}
+			appendSquare(sb, to);
+		}
+		chessMatch.makeMove(move);
+		if (chessMatch.getCheck()) {
+			sb.append(chessMatch.hasLegalMove() ? '+' : '#');
+		}
+		chessMatch.undoMove();
+		return sb.toString();
+	}
+	
+	private static PieceType pieceType(byte letter) {
+		switch (letter) {
+		case 'N': return PieceType.KNIGHT;
+		case 'B': return PieceType.BISHOP;
+		case 'R': return PieceType.ROOK;
+		case 'Q': return PieceType.QUEEN;
+		case 'K': return PieceType.KING;
+		default: return null;
+		}
+	}
+	
+	private static int square(byte column, byte row) {
+		if (column < 'a' || column > 'h' || row < '1' || row > '8') {
+			return -1;
+		}
+		return ChessBoard.square('8' - row, column - 'a');
+	}
+	
+	private static void appendSquare(StringBuilder sb, int square) {
+		sb.append((char) ('a' + ChessBoard.column(square))).append((char) ('8' - ChessBoard.row(square)));
+	}
+}
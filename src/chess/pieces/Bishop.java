@@ -1,66 +1,32 @@
 package chess.pieces;
 
-import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
+import chess.ChessBoard;
 import chess.ChessPiece;
 import chess.Color;
+import chess.MoveList;
+import chess.PieceType;
 
-public class Bishop extends ChessPiece{
+public class Bishop extends ChessPiece {
 
-	public Bishop(Board board, Color color) {
+	public Bishop(ChessBoard board, Color color) {
 		super(board, color);
 	}
 
+	//Percorre as quatro diagonais até a primeira peça
 	@Override
-	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-		
-		Position p = new Position(0,0);
-		//NW
-		p.setValues(position.getRow() - 1, position.getColumn() - 1);
-		while(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setValues(p.getRow() - 1, p.getColumn() - 1);
-		}
-		if(getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//NE
-		p.setValues(position.getRow() - 1, position.getColumn() + 1);
-		while(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setValues(p.getRow() - 1, p.getColumn() + 1);
-		}
-		if(getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//SW
-		p.setValues(position.getRow() + 1, position.getColumn() - 1);
-		while(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setValues(p.getRow() + 1, p.getColumn() - 1);
-		}
-		if(getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//SE
-		p.setValues(position.getRow() + 1, position.getColumn() + 1);
-		while(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-			p.setValues(p.getRow() + 1, p.getColumn() + 1);
-		}
-		if(getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		return mat;
+	public void generateMoves(MoveList moves) {
+		int from = getSquare();
+		addMoves(moves, from, Attacks.bishop(from, getChessBoard().occupied()));
 	}
-	
+
+	@Override
+	public PieceType getType() {
+		return PieceType.BISHOP;
+	}
+
 	@Override
-	public String toString(){
+	public String toString() {
 		return "B";
 	}
 }
@@ -1,116 +1,62 @@
 package chess.pieces;
 
-import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
+import chess.ChessBoard;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.Move;
+import chess.MoveList;
+import chess.PieceType;
 
 public class King extends ChessPiece {
 
 	private ChessMatch chessMatch;
 	
-	public King(Board board, Color color, ChessMatch chessMatch) {
+	public King(ChessBoard board, Color color, ChessMatch chessMatch) {
 		super(board, color);
 		this.chessMatch = chessMatch;
 	}
 
+	@Override
+	public PieceType getType() {
+		return PieceType.KING;
+	}
+
 	@Override
 	public String toString() {
 		return "K";
 	}
 
-	//Define se a posio fornecida est disponvel
-	public boolean canMove(Position position) {
-		ChessPiece p = (ChessPiece) getBoard().piece(position);
-		return p == null || p.getColor() != getColor();
-	}
-	
 	/*JOGADA ESPECIAL ROQUE: o rei e a torre trocam de lugar se nenhum dos dois
-	 *tiver se movido na partida e se no estiver em xeque.*/
-	private boolean testRookCastling(Position position){
-		//teste se tem torre e se est apta para roque
-		ChessPiece p = (ChessPiece)getBoard().piece(position);
-		return p!= null && p instanceof Rook && p.getColor() == getColor() && p.getMoveCount() == 0;
+	 *tiver se movido na partida e se não estiver em xeque. Se eles já se moveram
+	 *fica registrado nos direitos de roque da partida.*/
+	private boolean testRookCastling(int square){
+		//teste se tem torre da mesma cor na casa
+		ChessPiece p = getChessBoard().pieceAt(square);
+		return p instanceof Rook && p.getColor() == getColor();
 	}
 	
 	@Override
-	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-		
-		Position p = new Position(0,0);
-		
-		//above
-		p.setValues(position.getRow() - 1, position.getColumn());
-		if(getBoard().positionExists(p) && canMove(p)){
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//below
-		p.setValues(position.getRow() + 1, position.getColumn());
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//right
-		p.setValues(position.getRow(), position.getColumn() + 1);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//left
-		p.setValues(position.getRow(), position.getColumn() - 1);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
+	public void generateMoves(MoveList moves) {
+		int from = getSquare();
+		addMoves(moves, from, Attacks.king(from));
 		
-		//above and left
-		p.setValues(position.getRow() - 1, position.getColumn() - 1);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		//above and right
-		p.setValues(position.getRow() - 1, position.getColumn() + 1);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		//below and left
-		p.setValues(position.getRow() + 1, position.getColumn() - 1);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		//below and right
-		p.setValues(position.getRow() + 1, position.getColumn() + 1);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
 		//ROQUE
-		if(getMoveCount() == 0 && !chessMatch.getCheck()) {
-			//roque pequeno
-			Position posT1 = new Position(position.getRow(), position.getColumn() + 3);
-			if (testRookCastling(posT1)) {
-				Position p1 = new Position(position.getRow(), position.getColumn() + 1);
-				Position p2 = new Position(position.getRow(), position.getColumn() + 2);
-				//Testa se no h peas entre o rei e a torre
-				if(getBoard().piece(p1) == null && getBoard().piece(p2) == null) {
-					//Ento permite o movimento para 2 casas  direita
-					mat[position.getRow()][position.getColumn() + 2] = true;
-				}
+		int rights = chessMatch.getCastlingRights();
+		boolean white = getColor() == Color.WHITE;
+		int kingside = white ? ChessMatch.WHITE_KINGSIDE : ChessMatch.BLACK_KINGSIDE;
+		int queenside = white ? ChessMatch.WHITE_QUEENSIDE : ChessMatch.BLACK_QUEENSIDE;
+		if((rights & (kingside | queenside)) != 0 && !chessMatch.getCheck() && ChessBoard.column(from) == 4) {
+			long occupied = getChessBoard().occupied();
+			//roque pequeno: testa se não há peças entre o rei e a torre
+			if((rights & kingside) != 0 && testRookCastling(from + 3) && (occupied & (ChessBoard.bit(from + 1) | ChessBoard.bit(from + 2))) == 0) {
+				moves.add(Move.of(from, from + 2, Move.CASTLING));
 			}
-			//roque grande 
-			Position posT2 = new Position(position.getRow(), position.getColumn() - 4);
-			if (testRookCastling(posT2)) {
-				Position p1 = new Position(position.getRow(), position.getColumn() - 1);
-				Position p2 = new Position(position.getRow(), position.getColumn() - 2);
-				Position p3 = new Position(position.getRow(), position.getColumn() - 3);
-				//Testa se no h peas entre o rei e a torre
-				if(getBoard().piece(p1) == null && getBoard().piece(p2) == null && getBoard().piece(p3) == null) {
-					//Ento permite o movimento para 2 casas  esquerda
-					mat[position.getRow()][position.getColumn() - 2] = true;
-				}
+			//roque grande
+			if((rights & queenside) != 0 && testRookCastling(from - 4) && (occupied & (ChessBoard.bit(from - 1) | ChessBoard.bit(from - 2) | ChessBoard.bit(from - 3))) == 0) {
+				moves.add(Move.of(from, from - 2, Move.CASTLING));
 			}
-			
 		}
-		return mat;
 	}	
 }
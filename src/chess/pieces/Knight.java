@@ -1,81 +1,32 @@
 package chess.pieces;
 
-import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
+import chess.ChessBoard;
 import chess.ChessPiece;
 import chess.Color;
+import chess.MoveList;
+import chess.PieceType;
 
-public class Knight extends ChessPiece{
+public class Knight extends ChessPiece {
 
-	public Knight(Board board, Color color) {
+	public Knight(ChessBoard board, Color color) {
 		super(board, color);
 	}
-	
-	//Define se a posio fornecida est disponvel
-	public boolean canMove(Position position) {
-		ChessPiece p = (ChessPiece) getBoard().piece(position);
-		return p == null || p.getColor() != getColor();
+
+	//Os oito saltos em L, descartando os que saem do tabuleiro
+	@Override
+	public void generateMoves(MoveList moves) {
+		int from = getSquare();
+		addMoves(moves, from, Attacks.knight(from));
 	}
-	
+
 	@Override
-	public boolean[][] possibleMoves() {
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
-		
-		Position p = new Position(0,0);
-		
-		//1 up 2 left
-		p.setValues(position.getRow() - 1, position.getColumn() -  2);
-		if(getBoard().positionExists(p) && canMove(p)){
-			mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//2 up 1 left
-		p.setValues(position.getRow() - 2 , position.getColumn() - 1);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//1 up 2 right
-		p.setValues(position.getRow() - 1, position.getColumn() + 2);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//2 up 1 right
-		p.setValues(position.getRow() - 2, position.getColumn() + 1);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//1 down 2 right
-		p.setValues(position.getRow() + 1, position.getColumn() + 2);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//2 down 1 right
-		p.setValues(position.getRow() + 2, position.getColumn() + 1);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		//1 down 2 left
-		p.setValues(position.getRow() + 1, position.getColumn() - 2);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		//2 down 1 left
-		p.setValues(position.getRow() + 2, position.getColumn() - 1);
-		if(getBoard().positionExists(p) && canMove(p)){
-		mat[p.getRow()][p.getColumn()] = true;
-		}
-		
-		return mat;
+	public PieceType getType() {
+		return PieceType.KNIGHT;
 	}
 
-	@Override 
+	@Override
 	public String toString() {
 		return "N";
 	}
 }
-
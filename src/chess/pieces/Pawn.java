@@ -1,112 +1,82 @@
 package chess.pieces;
 
-import boardgame.Board;
-import boardgame.Position;
+import chess.Attacks;
+import chess.ChessBoard;
 import chess.ChessMatch;
 import chess.ChessPiece;
 import chess.Color;
+import chess.Move;
+import chess.MoveList;
+import chess.PieceType;
 
 public class Pawn extends ChessPiece{
 
 	private ChessMatch chessMatch;
 	
-	public Pawn(Board board, Color color, ChessMatch chessMatch) {
+	public Pawn(ChessBoard board, Color color, ChessMatch chessMatch) {
 		super(board, color);
 		this.chessMatch = chessMatch;
 	}
 
 	@Override
-	public boolean[][] possibleMoves() {
+	public void generateMoves(MoveList moves) {
+		ChessBoard board = getChessBoard();
+		int from = getSquare();
+		boolean white = getColor() == Color.WHITE;
+		//O peão branco anda em direção à linha 0 da matriz e o preto em direção à linha 7
+		int forward = white ? -8 : 8;
+		int startRow = white ? 6 : 1;
+		int lastRow = white ? 0 : 7;
 		
-		boolean[][] mat = new boolean[getBoard().getRows()][getBoard().getColumns()];
+		int to = from + forward;
+		if(!board.isOccupied(to)) {
+			addPawnMove(moves, from, to, Move.QUIET, lastRow);
+			//Se ainda está na casa inicial, pode andar duas casas à frente
+			if(ChessBoard.row(from) == startRow && !board.isOccupied(to + forward)) {
+				moves.add(Move.of(from, to + forward, Move.DOUBLE_PUSH));
+			}
+		}
 		
-		Position p = new Position(0,0);
+		//Testa se há peça adversária nas diagonais imediatas do peão
+		long attacks = Attacks.pawn(getColor(), from);
+		long captures = attacks & board.occupied() & ~board.occupancy(getColor());
+		while(captures != 0) {
+			to = Long.numberOfTrailingZeros(captures);
+			captures &= captures - 1;
+			addPawnMove(moves, from, to, Move.CAPTURE, lastRow);
+		}
 		
-		if(getColor() == Color.WHITE) {
-			p.setValues(position.getRow() - 1, position.getColumn());
-			if(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			p.setValues(position.getRow() - 2, position.getColumn());
-			//p2  a primeira casa  frente do peo
-			Position p2 = new Position(position.getRow() - 1, position.getColumn());
-			//Testa se a pea j se moveu alguma vez, se no for o caso, pode andar duas casas  frente
-			if(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && 
-					getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2)  && getMoveCount() == 0) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			//Testa se h pea adversria nas diagonais imediatas do peo
-			p.setValues(position.getRow() - 1, position.getColumn() - 1);
-			if(getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			p.setValues(position.getRow() - 1, position.getColumn() + 1);
-			if(getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}			
-			
-			/*JOGADA ESPECIAL EN PASSANT: peo 1 pode capturar o peo 2 que tiver se movido
-			 *2 casas  frente (no seu primeiro movimento) se o 2 se colocar logo ao seu lado.
-			 *O peo 1 se move para a sua diagonal imediata 
-			 */
-			//EN PASSANT white
-			if(position.getRow() == 3) {
-				Position left = new Position(position.getRow(), position.getColumn() - 1);
-				//Verifica se a pea  esquerda  vulnervel ao en passant
-				if(getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable()){
-					mat[left.getRow() - 1][left.getColumn()] = true;
-				}
-				Position right = new Position(position.getRow(), position.getColumn() + 1);
-				//Verifica se a pea  direita  vulnervel ao en passant
-				if(getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVulnerable()){
-					mat[right.getRow() - 1][right.getColumn()] = true;
-				}
-			}
+		/*JOGADA ESPECIAL EN PASSANT: peão 1 pode capturar o peão 2 que tiver se movido
+		 *2 casas à frente (no seu primeiro movimento) se o 2 se colocar logo ao seu lado.
+		 *O peão 1 se move para a sua diagonal imediata 
+		 */
+		//A casa de en passant fica na linha 2 quando o preto avançou duas casas e na 5 quando foi o branco
+		to = chessMatch.getEnPassantSquare();
+		if(to >= 0 && ChessBoard.row(to) == (white ? 2 : 5) && (attacks & ChessBoard.bit(to)) != 0) {
+			moves.add(Move.of(from, to, Move.EN_PASSANT));
+		}
+	}
+	
+	//Ao chegar na última linha, gera um lance para cada peça possível da promoção
+	private void addPawnMove(MoveList moves, int from, int to, int flags, int lastRow) {
+		if(ChessBoard.row(to) == lastRow) {
+			moves.add(Move.of(from, to, flags, PieceType.QUEEN));
+			moves.add(Move.of(from, to, flags, PieceType.ROOK));
+			moves.add(Move.of(from, to, flags, PieceType.BISHOP));
+			moves.add(Move.of(from, to, flags, PieceType.KNIGHT));
 		}
 		else {
-			p.setValues(position.getRow() + 1, position.getColumn());
-			if(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			p.setValues(position.getRow() + 2, position.getColumn());
-			//p2  a primeira casa  frente do peo
-			Position p2 = new Position(position.getRow() + 1, position.getColumn());
-			//Testa se a pea j se moveu alguma vez, se no for o caso, pode andar duas casas  frente
-			if(getBoard().positionExists(p) && !getBoard().thereIsAPiece(p) && 
-					getBoard().positionExists(p2) && !getBoard().thereIsAPiece(p2)  && getMoveCount() == 0) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			//Testa se h pea adversria nas diagonais imediatas do peo
-			p.setValues(position.getRow() + 1, position.getColumn() - 1);
-			if(getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}
-			p.setValues(position.getRow() + 1, position.getColumn() + 1);
-			if(getBoard().positionExists(p) && isThereOpponentPiece(p)) {
-				mat[p.getRow()][p.getColumn()] = true;
-			}	
-			//EN PASSANT black
-			if(position.getRow() == 4) {
-				Position left = new Position(position.getRow(), position.getColumn() - 1);
-				//Verifica se a pea  esquerda  vulnervel ao en passant
-				if(getBoard().positionExists(left) && isThereOpponentPiece(left) && getBoard().piece(left) == chessMatch.getEnPassantVulnerable()){
-					mat[left.getRow() + 1][left.getColumn()] = true;
-				}
-				Position right = new Position(position.getRow(), position.getColumn() + 1);
-				//Verifica se a pea  direita  vulnervel ao en passant
-				if(getBoard().positionExists(right) && isThereOpponentPiece(right) && getBoard().piece(right) == chessMatch.getEnPassantVulnerable()){
-					mat[right.getRow() + 1][right.getColumn()] = true;
-				}
-			}
+			moves.add(Move.of(from, to, flags));
 		}
-		return mat;
+	}
+	
+	@Override
+	public PieceType getType() {
+		return PieceType.PAWN;
 	}
 	
 	@Override
 	public String toString(){
 		return "P";
 	}
-	
-	
-
 }
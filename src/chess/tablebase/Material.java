@@ -0,0 +1,221 @@
+package chess.tablebase;
+
+import chess.Evaluation;
+import chess.PieceType;
+
+/*
+ Conjunto de peças de uma tabela de finais, escrito como "KQKR": as peças das
+ brancas e depois as das pretas, cada lado começando pelo rei. O nome é
+ sempre o canônico, com o lado mais forte nas brancas e as peças de cada lado
+ na ordem KQRBNP; "KRKQ" e "KKR" viram "KQKR" e "KRK", e a posição com as cores
+ trocadas é consultada espelhada (ver Tablebases).
+
+ A ordem das peças nos índices da tabela é: rei branco, rei preto, as outras
+ brancas e as outras pretas, na ordem do nome.
+ */
+public final class Material {
+
+	public static final int MAX_PIECES = 4;
+	
+	private static final String LETTERS = "KQRBNP";
+	private static final PieceType[] TYPES = { PieceType.KING, PieceType.QUEEN, PieceType.ROOK, PieceType.BISHOP, PieceType.KNIGHT, PieceType.PAWN };
+	
+	/*Assinatura do material: a contagem de cada tipo de peça fora o rei, por cor,
+	 como um dígito na base 3 (com no máximo 4 peças, cada uma aparece no máximo 2
+	 vezes). Os reis valem 0. É um int pequeno, usado como índice da cache do Tablebases*/
+	static final int SIGNATURES = 59049;
+	private static final int[] WEIGHTS = new int[2 * PieceType.values().length];
+	
+	static {
+		int weight = 1;
+		for (int color = 0; color < 2; color++) {
+			for (PieceType type : PieceType.values()) {
+				if (type != PieceType.KING) {
+					WEIGHTS[color * PieceType.values().length + type.ordinal()] = weight;
+					weight *= 3;
+				}
+			}
+		}
+	}
+	
+	private final String name;
+	private final int[] types;
+	private final int[] colors;
+	private final boolean pawns;
+	
+	private Material(String white, String black) {
+		name = white + black;
+		int n = name.length();
+		types = new int[n];
+		colors = new int[n];
+		types[0] = PieceType.KING.ordinal();
+		types[1] = PieceType.KING.ordinal();
+		colors[1] = 1;
+		int k = 2;
+		for (int i = 1; i < white.length(); i++, k++) {
+			types[k] = type(white.charAt(i)).ordinal();
+		}
+		for (int i = 1; i < black.length(); i++, k++) {
+			types[k] = type(black.charAt(i)).ordinal();
+			colors[k] = 1;
+		}
+		pawns = name.indexOf('P') >= 0;
+	}
+	
+	//Material a partir do nome, em qualquer ordem de peças e de lados ("KRKQ", "KKR")
+	public static Material of(String name) {
+		int second = name.indexOf('K', 1);
+		if (name.isEmpty() || name.charAt(0) != 'K' || second < 0 || name.indexOf('K', second + 1) >= 0) {
+			throw new IllegalArgumentException("Material must have one king per side, like KQKR: " + name);
+		}
+		if (name.length() > MAX_PIECES) {
+			throw new IllegalArgumentException("At most " + MAX_PIECES + " pieces: " + name);
+		}
+		for (int i = 0; i < name.length(); i++) {
+			if (LETTERS.indexOf(name.charAt(i)) < 0) {
+				throw new IllegalArgumentException("Unknown piece '" + name.charAt(i) + "': " + name);
+			}
+		}
+		String white = sort(name.substring(0, second));
+		String black = sort(name.substring(second));
+		return flips(white, black) ? new Material(black, white) : new Material(white, black);
+	}
+	
+	/*Material canônico das count peças fornecidas (tipos pelo ordinal de PieceType
+	 e cores pelo ordinal de Color)*/
+	static Material of(int[] types, int[] colors, int count) {
+		String white = side(types, colors, count, 0);
+		String black = side(types, colors, count, 1);
+		return flips(white, black) ? new Material(black, white) : new Material(white, black);
+	}
+	
+	//Assinatura das count peças fornecidas, sem alocar; count deve ser no máximo MAX_PIECES
+	static int signature(int[] types, int[] colors, int count) {
+		int signature = 0;
+		for (int i = 0; i < count; i++) {
+			signature += WEIGHTS[colors[i] * TYPES.length + types[i]];
+		}
+		return signature;
+	}
+	
+	//Testa se as peças fornecidas estão com as cores trocadas em relação ao material canônico
+	static boolean flips(int[] types, int[] colors, int count) {
+		return flips(side(types, colors, count, 0), side(types, colors, count, 1));
+	}
+	
+	/*Coloca em order, para cada peça da tabela, qual das peças fornecidas ocupa o
+	 seu lugar (com as cores já trocadas se flip); peças iguais são intercambiáveis*/
+	void match(int[] types, int[] colors, int count, boolean flip, int[] order) {
+		int used = 0;
+		for (int k = 0; k < this.types.length; k++) {
+			for (int i = 0; i < count; i++) {
+				if ((used & (1 << i)) == 0 && types[i] == this.types[k] && (colors[i] ^ (flip ? 1 : 0)) == this.colors[k]) {
+					order[k] = i;
+					used |= 1 << i;
+					break;
+				}
+			}
+		}
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public int size() {
+		return types.length;
+	}
+	
+	//Ordinal de PieceType da peça na posição i da ordem da tabela
+	public int type(int i) {
+		return types[i];
+	}
+	
+	//Ordinal de Color da peça na posição i da ordem da tabela
+	public int color(int i) {
+		return colors[i];
+	}
+	
+	public boolean hasPawns() {
+		return pawns;
+	}
+	
+	//Só os dois reis: empate, sem tabela
+	public boolean isBareKings() {
+		return types.length == 2;
+	}
+	
+	@Override
+	public String toString() {
+		return name;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Material && ((Material) obj).name.equals(name);
+	}
+	
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+	
+	static char letter(int type) {
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i].ordinal() == type) {
+				return LETTERS.charAt(i);
+			}
+		}
+		throw new IllegalArgumentException("Unknown piece type " + type);
+	}
+	
+	private static PieceType type(char letter) {
+		return TYPES[LETTERS.indexOf(letter)];
+	}
+	
+	//Peças de uma cor, rei primeiro e as outras na ordem KQRBNP
+	private static String side(int[] types, int[] colors, int count, int color) {
+		StringBuilder sb = new StringBuilder("K");
+		for (int i = 0; i < count; i++) {
+			if (colors[i] == color && types[i] != PieceType.KING.ordinal()) {
+				sb.append(letter(types[i]));
+			}
+		}
+		return sort(sb.toString());
+	}
+	
+	private static String sort(String side) {
+		char[] letters = side.toCharArray();
+		for (int i = 1; i < letters.length; i++) {
+			for (int j = i; j > 0 && LETTERS.indexOf(letters[j]) < LETTERS.indexOf(letters[j - 1]); j--) {
+				char c = letters[j];
+				letters[j] = letters[j - 1];
+				letters[j - 1] = c;
+			}
+		}
+		return new String(letters);
+	}
+	
+	//As pretas são o lado mais forte: mais material ou, empatado, peças mais fortes
+	private static boolean flips(String white, String black) {
+		int difference = value(black) - value(white);
+		if (difference != 0) {
+			return difference > 0;
+		}
+		for (int i = 0; i < Math.min(white.length(), black.length()); i++) {
+			int c = LETTERS.indexOf(black.charAt(i)) - LETTERS.indexOf(white.charAt(i));
+			if (c != 0) {
+				return c < 0;
+			}
+		}
+		return black.length() > white.length();
+	}
+	
+	private static int value(String side) {
+		int value = 0;
+		for (int i = 0; i < side.length(); i++) {
+			value += Evaluation.value(type(side.charAt(i)));
+		}
+		return value;
+	}
+}
@@ -0,0 +1,219 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.ChessException;
+
+/*
+ Tabela de um material: um byte por posição com o resultado para o jogador da
+ vez e a distância até o mate em plies (DTM):
+ 0          empate
+ 1..127     vitória, mate em (2v - 1) plies
+ 128..254   derrota, mate em 2(v - 128) plies (128: já levou mate)
+ 255        posição impossível
+
+ Índice: ((vez * REIS + rei branco) * 64 + casa da peça 2) * 64 + ..., com as
+ peças na ordem do Material. As simetrias do tabuleiro reduzem o rei branco a
+ 10 casas (triângulo a1-d1-d4) sem peões e a 32 (colunas a-d) com peões, que
+ só podem ser espelhados na horizontal. Sem roque e sem en passant: quem
+ consulta trata essas posições à parte (ver Tablebases).
+
+ Arquivo (little-endian): magic "CTB1", versão, número de posições e maior DTM
+ (ints) e os bytes da tabela, que são mapeados na memória para a consulta.
+ */
+public final class Tablebase {
+
+	static final int MAGIC = 0x31425443;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	
+	static final int DRAW = 0;
+	static final int LOSS = 128;
+	static final int ILLEGAL = 255;
+	static final int MAX_PLIES = 253;
+	
+	//Casas do rei branco depois das simetrias, e o índice de cada casa nelas (-1 se fora)
+	private static final int[] TRIANGLE = new int[10];
+	private static final int[] TRIANGLE_INDEX = new int[64];
+	private static final int[] HALF = new int[32];
+	private static final int[] HALF_INDEX = new int[64];
+	
+	static {
+		int t = 0;
+		int h = 0;
+		for (int square = 0; square < 64; square++) {
+			int row = square >>> 3;
+			int column = square & 7;
+			TRIANGLE_INDEX[square] = -1;
+			HALF_INDEX[square] = -1;
+			if (column < 4) {
+				HALF_INDEX[square] = h;
+				HALF[h++] = square;
+				//Linhas 1 a 4 (row 7 a 4), sem passar da diagonal a1-h8
+				if (row >= 4 && 7 - row <= column) {
+					TRIANGLE_INDEX[square] = t;
+					TRIANGLE[t++] = square;
+				}
+			}
+		}
+	}
+	
+	private final Material material;
+	private final ByteBuffer data;
+	private final int maxPlies;
+	
+	Tablebase(Material material, ByteBuffer data, int maxPlies) {
+		this.material = material;
+		this.data = data;
+		this.maxPlies = maxPlies;
+	}
+	
+	//Mapeia o arquivo da tabela
+	static Tablebase load(Path path, Material material) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+			while (header.hasRemaining() && channel.read(header, header.position()) > 0) {
+			}
+			header.flip();
+			long positions = positions(material);
+			if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC || header.getInt(4) != VERSION
+					|| header.getInt(8) != positions || channel.size() != HEADER_SIZE + positions) {
+				throw new ChessException("Invalid tablebase file: " + path);
+			}
+			ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, positions);
+			return new Tablebase(material, data, header.getInt(12));
+		}
+	}
+	
+	void write(Path path) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(data.capacity()).putInt(maxPlies).flip();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			ByteBuffer body = data.duplicate();
+			body.clear();
+			while (body.hasRemaining()) {
+				channel.write(body);
+			}
+		}
+	}
+	
+	public Material getMaterial() {
+		return material;
+	}
+	
+	//Maior distância até o mate da tabela, em plies
+	public int getMaxPlies() {
+		return maxPlies;
+	}
+	
+	int code(long index) {
+		return data.get((int) index) & 0xFF;
+	}
+	
+	//Quantidade de posições (tamanho da tabela) do material
+	static long positions(Material material) {
+		long positions = 2L * (material.hasPawns() ? HALF.length : TRIANGLE.length);
+		for (int i = 1; i < material.size(); i++) {
+			positions *= 64;
+		}
+		return positions;
+	}
+	
+	/*Índice da posição com as peças nas casas fornecidas (na ordem do material) e a
+	 vez (ordinal de Color). Aplica as simetrias direto no vetor de casas*/
+	static long index(Material material, int[] squares, int side) {
+		int n = material.size();
+		int mirror = (squares[0] & 7) > 3 ? 7 : 0;
+		if (!material.hasPawns() && squares[0] >>> 3 < 4) {
+			mirror |= 56;
+		}
+		if (mirror != 0) {
+			for (int i = 0; i < n; i++) {
+				squares[i] ^= mirror;
+			}
+		}
+		long index;
+		if (material.hasPawns()) {
+			index = side * HALF.length + HALF_INDEX[squares[0]];
+		}
+		else {
+			if (TRIANGLE_INDEX[squares[0]] < 0) {
+				for (int i = 0; i < n; i++) {
+					squares[i] = transpose(squares[i]);
+				}
+			}
+			index = side * TRIANGLE.length + TRIANGLE_INDEX[squares[0]];
+		}
+		for (int i = 1; i < n; i++) {
+			index = (index << 6) | squares[i];
+		}
+		return index;
+	}
+	
+	//Casas das peças da posição do índice; retorna a vez
+	static int decode(Material material, long index, int[] squares) {
+		for (int i = material.size() - 1; i > 0; i--) {
+			squares[i] = (int) (index & 63);
+			index >>>= 6;
+		}
+		int kings = material.hasPawns() ? HALF.length : TRIANGLE.length;
+		squares[0] = material.hasPawns() ? HALF[(int) (index % kings)] : TRIANGLE[(int) (index % kings)];
+		return (int) (index / kings);
+	}
+	
+	//Espelha na diagonal a1-h8
+	private static int transpose(int square) {
+		return ((7 - (square & 7)) << 3) | (7 - (square >>> 3));
+	}
+	
+	static boolean isWin(int code) {
+		return code > DRAW && code < LOSS;
+	}
+	
+	static boolean isLoss(int code) {
+		return code >= LOSS && code < ILLEGAL;
+	}
+	
+	static int plies(int code) {
+		return code < LOSS ? 2 * code - 1 : 2 * (code - LOSS);
+	}
+	
+	static int win(int plies) {
+		return (plies + 1) / 2;
+	}
+	
+	static int loss(int plies) {
+		return LOSS + plies / 2;
+	}
+	
+	//Pontuação (ver Tablebases.WIN) do código, para o jogador da vez
+	static int score(int code) {
+		if (isWin(code)) {
+			return Tablebases.WIN - plies(code);
+		}
+		if (isLoss(code)) {
+			return -Tablebases.WIN + plies(code);
+		}
+		return 0;
+	}
+	
+	/*Pontuação de um lance para quem o faz, a partir da pontuação da posição
+	 seguinte (para o adversário): um ply a mais até o mate, com o sinal trocado*/
+	static int parent(int childScore) {
+		if (childScore > 0) {
+			return -childScore + 1;
+		}
+		if (childScore < 0) {
+			return -childScore - 1;
+		}
+		return 0;
+	}
+}
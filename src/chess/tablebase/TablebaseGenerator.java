@@ -0,0 +1,514 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import chess.Attacks;
+import chess.Color;
+import chess.PieceType;
+
+/*
+ Gera a tabela de um material por análise retrógrada em iterações: a iteração
+ 0 marca as posições impossíveis e os mates; a iteração n (ímpar) marca como
+ vitória em n plies as posições com um lance para uma derrota em n - 1, e a
+ iteração n (par) marca como derrota em n as posições em que todos os lances
+ levam a vitórias do adversário em até n - 1. O que não for decidido quando
+ as iterações param de mudar é empate.
+
+ Cada iteração só escreve um tipo de resultado (vitórias nas ímpares, derrotas
+ nas pares) e só lê os do outro tipo, das iterações anteriores; por isso as
+ threads dividem as posições em blocos e escrevem direto na mesma tabela, sem
+ travas. Capturas e promoções levam a outro material, cuja tabela é gerada
+ antes (recursivamente) e consultada como resultado já conhecido.
+ */
+final class TablebaseGenerator {
+
+	private static final int CHUNK = 1 << 14;
+	private static final int PAWN = PieceType.PAWN.ordinal();
+	private static final int KNIGHT = PieceType.KNIGHT.ordinal();
+	private static final int BISHOP = PieceType.BISHOP.ordinal();
+	private static final int ROOK = PieceType.ROOK.ordinal();
+	private static final int QUEEN = PieceType.QUEEN.ordinal();
+	private static final int KING = PieceType.KING.ordinal();
+	private static final int[] PROMOTIONS = { QUEEN, ROOK, BISHOP, KNIGHT };
+	private static final Color[] COLORS = Color.values();
+	
+	//Modos da varredura dos lances
+	private static final int ANY_MOVE = 0;
+	private static final int FIND_WIN = 1;
+	private static final int PROVE_LOSS = 2;
+	
+	private final Material material;
+	private final int n;
+	private final int[] types;
+	private final int[] colors;
+	private final long positions;
+	private final byte[] table;
+	private final int threads;
+	
+	/*Para onde vai cada captura ou promoção, indexado por (peça promovida + 1,
+	 promoção, peça capturada + 1); ver conversionIndex*/
+	private final Conversion[] conversions;
+	private int maxConversionPlies;
+	
+	private final AtomicLong next = new AtomicLong();
+	private final LongAdder changes = new LongAdder();
+	private volatile int iteration;
+	
+	TablebaseGenerator(Material material, Tablebases tablebases, int threads) throws IOException {
+		this.material = material;
+		this.threads = threads;
+		n = material.size();
+		types = new int[n];
+		colors = new int[n];
+		for (int i = 0; i < n; i++) {
+			types[i] = material.type(i);
+			colors[i] = material.color(i);
+		}
+		positions = Tablebase.positions(material);
+		if (positions > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Tablebase too large: " + material);
+		}
+		table = new byte[(int) positions];
+		
+		conversions = new Conversion[(n + 1) * (PROMOTIONS.length + 1) * (n + 1)];
+		int[] reducedTypes = new int[n];
+		int[] reducedColors = new int[n];
+		int[] order = new int[n];
+		for (int promoted = -1; promoted < n; promoted++) {
+			if (promoted >= 0 && types[promoted] != PAWN) {
+				continue;
+			}
+			for (int promotion = promoted < 0 ? 0 : 1; promotion <= (promoted < 0 ? 0 : PROMOTIONS.length); promotion++) {
+				for (int captured = -1; captured < n; captured++) {
+					if (captured >= 0 && (types[captured] == KING || captured == promoted || (promoted >= 0 && colors[captured] == colors[promoted]))) {
+						continue;
+					}
+					if (promoted < 0 && captured < 0) {
+						continue;
+					}
+					//Peças que sobram, com o peão já promovido
+					int[] map = new int[n];
+					int count = 0;
+					for (int i = 0; i < n; i++) {
+						if (i != captured) {
+							reducedTypes[count] = i == promoted ? PROMOTIONS[promotion - 1] : types[i];
+							reducedColors[count] = colors[i];
+							map[i] = count++;
+						}
+						else {
+							map[i] = -1;
+						}
+					}
+					Material target = Material.of(reducedTypes, reducedColors, count);
+					Conversion conversion = new Conversion();
+					if (!target.isBareKings()) {
+						conversion.material = target;
+						conversion.table = tablebases.generate(target, threads);
+						conversion.flip = Material.flips(reducedTypes, reducedColors, count);
+						target.match(reducedTypes, reducedColors, count, conversion.flip, order);
+						//map: peça daqui -> posição dela na ordem do outro material
+						int[] slot = new int[count];
+						for (int k = 0; k < count; k++) {
+							slot[order[k]] = k;
+						}
+						for (int i = 0; i < n; i++) {
+							map[i] = map[i] < 0 ? -1 : slot[map[i]];
+						}
+						maxConversionPlies = Math.max(maxConversionPlies, conversion.table.getMaxPlies());
+					}
+					conversion.map = map;
+					conversions[conversionIndex(promoted, promotion, captured)] = conversion;
+				}
+			}
+		}
+	}
+	
+	Tablebase generate() {
+		Worker[] workers = new Worker[threads];
+		for (int i = 0; i < threads; i++) {
+			workers[i] = new Worker();
+		}
+		long previous = -1;
+		for (int i = 0;; i++) {
+			if (i > Tablebase.MAX_PLIES) {
+				throw new IllegalStateException("Distance to mate too long for " + material);
+			}
+			long changed = iterate(workers, i);
+			if (i > maxConversionPlies + 2 && changed == 0 && previous == 0) {
+				break;
+			}
+			previous = changed;
+		}
+		int maxPlies = 0;
+		for (byte value : table) {
+			int code = value & 0xFF;
+			if (Tablebase.isWin(code) || Tablebase.isLoss(code)) {
+				maxPlies = Math.max(maxPlies, Tablebase.plies(code));
+			}
+		}
+		return new Tablebase(material, ByteBuffer.wrap(table), maxPlies);
+	}
+	
+	private long iterate(Worker[] workers, int iteration) {
+		this.iteration = iteration;
+		next.set(0);
+		changes.reset();
+		if (workers.length == 1) {
+			workers[0].run();
+			return changes.sum();
+		}
+		Thread[] running = new Thread[workers.length];
+		for (int i = 0; i < workers.length; i++) {
+			running[i] = new Thread(workers[i], "tablebase-" + material + "-" + i);
+			running[i].start();
+		}
+		for (Thread thread : running) {
+			try {
+				thread.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Tablebase generation interrupted", e);
+			}
+		}
+		return changes.sum();
+	}
+	
+	private int conversionIndex(int promoted, int promotion, int captured) {
+		return ((promoted + 1) * (PROMOTIONS.length + 1) + promotion) * (n + 1) + captured + 1;
+	}
+	
+	private static long attacks(int type, int color, int square, long occupied) {
+		if (type == PAWN) return Attacks.pawn(COLORS[color], square);
+		if (type == KNIGHT) return Attacks.knight(square);
+		if (type == BISHOP) return Attacks.bishop(square, occupied);
+		if (type == ROOK) return Attacks.rook(square, occupied);
+		if (type == QUEEN) return Attacks.queen(square, occupied);
+		return Attacks.king(square);
+	}
+	
+	//Destino de uma captura ou promoção: tabela do material que sobra (null se só restam os reis)
+	private static final class Conversion {
+		Material material;
+		Tablebase table;
+		boolean flip;
+		int[] map;
+	}
+	
+	private final class Worker implements Runnable {
+	
+		private final int[] squares = new int[n];
+		private final int[] child = new int[n];
+		private final int[] target = new int[Material.MAX_PIECES];
+		private int current;
+		private int side;
+		private long occupied;
+		private int mode;
+		private int found;
+		private boolean failed;
+		
+		@Override
+		public void run() {
+			current = iteration;
+			long count = 0;
+			long start;
+			while ((start = next.getAndAdd(CHUNK)) < positions) {
+				long end = Math.min(positions, start + CHUNK);
+				for (long index = start; index < end; index++) {
+					if (table[(int) index] != Tablebase.DRAW) {
+						continue;
+					}
+					int code = current == 0 ? initialize(index) : evaluate(index);
+					if (code != Tablebase.DRAW) {
+						table[(int) index] = (byte) code;
+						count++;
+					}
+				}
+			}
+			changes.add(count);
+		}
+		
+		//Iteração 0: posição impossível, mate ou ainda indefinida
+		private int initialize(long index) {
+			decode(index);
+			if (Long.bitCount(occupied) != n) {
+				return Tablebase.ILLEGAL;
+			}
+			for (int i = 0; i < n; i++) {
+				int row = squares[i] >>> 3;
+				if (types[i] == PAWN && (row == 0 || row == 7)) {
+					return Tablebase.ILLEGAL;
+				}
+			}
+			//O rei de quem não joga não pode estar em xeque (isso cobre os reis vizinhos)
+			if (attacked(squares, squares[1 - side], side, occupied, -1)) {
+				return Tablebase.ILLEGAL;
+			}
+			mode = ANY_MOVE;
+			if (scan()) {
+				return Tablebase.DRAW;
+			}
+			return attacked(squares, squares[side], 1 - side, occupied, -1) ? Tablebase.loss(0) : Tablebase.DRAW;
+		}
+		
+		private int evaluate(long index) {
+			decode(index);
+			mode = current % 2 == 1 ? FIND_WIN : PROVE_LOSS;
+			found = 0;
+			failed = false;
+			boolean stopped = scan();
+			if (mode == FIND_WIN) {
+				return stopped ? Tablebase.win(found) : Tablebase.DRAW;
+			}
+			//Sem lances seria afogamento, que já ficou como empate
+			return !failed && found > 0 ? Tablebase.loss(found) : Tablebase.DRAW;
+		}
+		
+		private void decode(long index) {
+			side = Tablebase.decode(material, index, squares);
+			occupied = 0;
+			for (int i = 0; i < n; i++) {
+				occupied |= 1L << squares[i];
+			}
+		}
+		
+		/*Recebe a pontuação de um lance legal para quem joga; retorna true para
+		 parar a varredura*/
+		private boolean accept(int option) {
+			if (mode == ANY_MOVE) {
+				return true;
+			}
+			if (mode == FIND_WIN) {
+				if (option > 0 && Tablebases.WIN - option <= current) {
+					found = Tablebases.WIN - option;
+					return true;
+				}
+				return false;
+			}
+			if (option < 0 && option + Tablebases.WIN <= current) {
+				found = Math.max(found, option + Tablebases.WIN);
+				return false;
+			}
+			failed = true;
+			return true;
+		}
+		
+		//Percorre os lances legais do jogador da vez; retorna true se o accept parou a varredura
+		private boolean scan() {
+			int enemy = 1 - side;
+			long own = 0;
+			for (int i = 0; i < n; i++) {
+				if (colors[i] == side) {
+					own |= 1L << squares[i];
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				if (colors[i] != side) {
+					continue;
+				}
+				int from = squares[i];
+				if (types[i] == PAWN) {
+					if (scanPawn(i, from, own)) {
+						return true;
+					}
+					continue;
+				}
+				long targets = attacks(types[i], side, from, occupied) & ~own;
+				while (targets != 0) {
+					int to = Long.numberOfTrailingZeros(targets);
+					targets &= targets - 1;
+					int captured = pieceAt(to);
+					if (!isLegal(i, from, to, captured)) {
+						continue;
+					}
+					int score = captured >= 0 ? conversionScore(-1, 0, captured, i, to, enemy) : sameTableScore(i, to, -1);
+					if (accept(Tablebase.parent(score))) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+		
+		private boolean scanPawn(int i, int from, long own) {
+			int enemy = 1 - side;
+			int forward = side == Color.WHITE.ordinal() ? -8 : 8;
+			int lastRow = side == Color.WHITE.ordinal() ? 0 : 7;
+			int startRow = side == Color.WHITE.ordinal() ? 6 : 1;
+			int to = from + forward;
+			if ((occupied & (1L << to)) == 0) {
+				if (scanPawnMove(i, from, to, -1, lastRow)) {
+					return true;
+				}
+				int twice = to + forward;
+				if (from >>> 3 == startRow && (occupied & (1L << twice)) == 0 && isLegal(i, from, twice, -1)) {
+					if (accept(Tablebase.parent(sameTableScore(i, twice, to)))) {
+						return true;
+					}
+				}
+			}
+			long captures = Attacks.pawn(COLORS[side], from) & occupied & ~own;
+			while (captures != 0) {
+				int square = Long.numberOfTrailingZeros(captures);
+				captures &= captures - 1;
+				if (scanPawnMove(i, from, square, pieceAt(square), lastRow)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		//Avanço simples ou captura de peão, com as quatro promoções na última linha
+		private boolean scanPawnMove(int i, int from, int to, int captured, int lastRow) {
+			if (!isLegal(i, from, to, captured)) {
+				return false;
+			}
+			int enemy = 1 - side;
+			if (to >>> 3 == lastRow) {
+				for (int promotion = 1; promotion <= PROMOTIONS.length; promotion++) {
+					if (accept(Tablebase.parent(conversionScore(i, promotion, captured, i, to, enemy)))) {
+						return true;
+					}
+				}
+				return false;
+			}
+			int score = captured >= 0 ? conversionScore(-1, 0, captured, i, to, enemy) : sameTableScore(i, to, -1);
+			return accept(Tablebase.parent(score));
+		}
+		
+		/*Pontuação, para o adversário, da posição depois de a peça moved ir para to
+		 sem capturar. Depois do avanço duplo de um peão (enPassant é a casa pulada)
+		 o adversário pode ter também a captura en passant, que a tabela não inclui*/
+		private int sameTableScore(int moved, int to, int enPassant) {
+			System.arraycopy(squares, 0, child, 0, n);
+			child[moved] = to;
+			int enemy = 1 - side;
+			int score = Tablebase.score(table[(int) Tablebase.index(material, child, enemy)] & 0xFF);
+			if (enPassant < 0) {
+				return score;
+			}
+			long after = (occupied & ~(1L << squares[moved])) | (1L << to);
+			for (int k = 0; k < n; k++) {
+				if (colors[k] != enemy || types[k] != PAWN || (Attacks.pawn(COLORS[enemy], squares[k]) & (1L << enPassant)) == 0) {
+					continue;
+				}
+				long occupiedAfter = (after & ~(1L << squares[k]) & ~(1L << to)) | (1L << enPassant);
+				if (attacked(squares, squares[enemy], side, occupiedAfter, moved)) {
+					continue;
+				}
+				//Valor da captura para o adversário (a tabela da captura é da vez de quem avançou)
+				System.arraycopy(squares, 0, child, 0, n);
+				child[moved] = to;
+				int option = Tablebase.parent(conversionScore(child, -1, 0, moved, k, enPassant, side));
+				if (option > 0 || score != Tablebase.DRAW || hasOtherMove()) {
+					score = Math.max(score, option);
+				}
+				else {
+					//A captura é o único lance
+					score = option;
+				}
+			}
+			return score;
+		}
+		
+		private int conversionScore(int promoted, int promotion, int captured, int moved, int to, int next) {
+			return conversionScore(squares, promoted, promotion, captured, moved, to, next);
+		}
+		
+		/*Pontuação, para next, da posição de outro material a que se chega quando a
+		 peça moved vai para to capturando captured ou sendo promovida*/
+		private int conversionScore(int[] position, int promoted, int promotion, int captured, int moved, int to, int next) {
+			Conversion conversion = conversions[conversionIndex(promoted, promotion, captured)];
+			if (conversion.table == null) {
+				return 0;
+			}
+			int mirror = conversion.flip ? 56 : 0;
+			for (int k = 0; k < n; k++) {
+				int slot = conversion.map[k];
+				if (slot >= 0) {
+					target[slot] = (k == moved ? to : position[k]) ^ mirror;
+				}
+			}
+			int code = conversion.table.code(Tablebase.index(conversion.material, target, conversion.flip ? 1 - next : next));
+			return Tablebase.score(code);
+		}
+		
+		/*Testa se o adversário, na posição em child, tem algum lance legal além das
+		 capturas en passant (que este teste não gera)*/
+		private boolean hasOtherMove() {
+			int enemy = 1 - side;
+			long all = 0;
+			long own = 0;
+			for (int i = 0; i < n; i++) {
+				all |= 1L << child[i];
+				if (colors[i] == enemy) {
+					own |= 1L << child[i];
+				}
+			}
+			for (int i = 0; i < n; i++) {
+				if (colors[i] != enemy) {
+					continue;
+				}
+				int from = child[i];
+				long targets;
+				if (types[i] == PAWN) {
+					int forward = enemy == Color.WHITE.ordinal() ? -8 : 8;
+					int startRow = enemy == Color.WHITE.ordinal() ? 6 : 1;
+					targets = Attacks.pawn(COLORS[enemy], from) & all & ~own;
+					if ((all & (1L << (from + forward))) == 0) {
+						targets |= 1L << (from + forward);
+						if (from >>> 3 == startRow && (all & (1L << (from + 2 * forward))) == 0) {
+							targets |= 1L << (from + 2 * forward);
+						}
+					}
+				}
+				else {
+					targets = attacks(types[i], enemy, from, all) & ~own;
+				}
+				while (targets != 0) {
+					int to = Long.numberOfTrailingZeros(targets);
+					targets &= targets - 1;
+					int captured = -1;
+					for (int k = 0; k < n; k++) {
+						if (child[k] == to) {
+							captured = k;
+						}
+					}
+					int king = types[i] == KING ? to : child[enemy];
+					if (!attacked(child, king, side, (all & ~(1L << from)) | (1L << to), captured)) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+		
+		//Testa se a peça i pode ir de from para to (capturando captured) sem deixar o próprio rei em xeque
+		private boolean isLegal(int i, int from, int to, int captured) {
+			int king = types[i] == KING ? to : squares[side];
+			return !attacked(squares, king, 1 - side, (occupied & ~(1L << from)) | (1L << to), captured);
+		}
+		
+		//Testa se a casa é atacada pelas peças da cor by (exceto skip), com a ocupação fornecida
+		private boolean attacked(int[] position, int square, int by, long occupied, int skip) {
+			for (int k = 0; k < n; k++) {
+				if (colors[k] == by && k != skip && (attacks(types[k], by, position[k], occupied) & (1L << square)) != 0) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		private int pieceAt(int square) {
+			for (int k = 0; k < n; k++) {
+				if (squares[k] == square) {
+					return k;
+				}
+			}
+			return -1;
+		}
+	}
+}
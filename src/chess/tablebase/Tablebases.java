@@ -0,0 +1,239 @@
+package chess.tablebase;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Move;
+import chess.MoveList;
+
+/*
+ Conjunto de tabelas de finais de um diretório, um arquivo por material
+ ("KQKR.ctb"). As tabelas são mapeadas na memória na primeira consulta ao
+ material e ficam abertas; a consulta calcula o índice da posição e lê um
+ byte, e pode ser feita por várias threads ao mesmo tempo.
+
+ O resultado é uma pontuação para o jogador da vez: WIN - plies quando ele dá
+ mate em plies, -WIN + plies quando leva mate em plies, 0 no empate e UNKNOWN
+ quando a posição não está nas tabelas (peças demais, direito de roque ou
+ arquivo ausente).
+ */
+public class Tablebases {
+
+	public static final int WIN = 30000;
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+	
+	private static final String EXTENSION = ".ctb";
+	
+	//Vetores de trabalho do probe, um conjunto por thread para a consulta não alocar
+	private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+	
+	private final Path directory;
+	private final ConcurrentHashMap<String, Optional<Tablebase>> tables = new ConcurrentHashMap<>();
+	/*Material canônico, troca de cores e tabela por assinatura (ver Material.signature),
+	 montados na primeira consulta a cada material. Duas threads podem montar a mesma
+	 entrada ao mesmo tempo, sem problema: os campos são final e o resultado é igual*/
+	private final Entry[] entries = new Entry[Material.SIGNATURES];
+	
+	public Tablebases(Path directory) {
+		this.directory = directory;
+	}
+	
+	/*Gera (com threads threads) e grava a tabela do material e, antes dela, as dos
+	 materiais a que se chega por captura ou promoção; as que já existirem no
+	 diretório são reaproveitadas*/
+	public Tablebase generate(String material, int threads) throws IOException {
+		return generate(Material.of(material), threads);
+	}
+	
+	synchronized Tablebase generate(Material material, int threads) throws IOException {
+		Tablebase table = get(material);
+		if (table != null) {
+			return table;
+		}
+		Files.createDirectories(directory);
+		table = new TablebaseGenerator(material, this, threads).generate();
+		table.write(path(material));
+		tables.put(material.getName(), Optional.of(table));
+		//As entradas guardam também a ausência de tabela
+		Arrays.fill(entries, null);
+		return table;
+	}
+	
+	//Tabela do material, ou null se não houver arquivo para ele
+	public Tablebase get(Material material) {
+		return tables.computeIfAbsent(material.getName(), name -> {
+			Path path = path(material);
+			if (!Files.exists(path)) {
+				return Optional.empty();
+			}
+			try {
+				return Optional.of(Tablebase.load(path, material));
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}).orElse(null);
+	}
+	
+	//Pontuação da posição atual da partida para o jogador da vez, ou UNKNOWN
+	public int probe(ChessMatch chessMatch) {
+		if (chessMatch.getCastlingRights() != 0) {
+			return UNKNOWN;
+		}
+		ChessBoard board = chessMatch.getBoard();
+		long occupied = board.occupied();
+		int count = Long.bitCount(occupied);
+		if (count > Material.MAX_PIECES) {
+			return UNKNOWN;
+		}
+		Scratch scratch = SCRATCH.get();
+		int[] types = scratch.types;
+		int[] colors = scratch.colors;
+		int[] squares = scratch.squares;
+		for (int i = 0; occupied != 0; i++) {
+			int square = Long.numberOfTrailingZeros(occupied);
+			occupied &= occupied - 1;
+			ChessPiece piece = board.pieceAt(square);
+			types[i] = piece.getType().ordinal();
+			colors[i] = piece.getColor().ordinal();
+			squares[i] = square;
+		}
+		int score = probe(scratch, count, chessMatch.getCurrentPlayer().ordinal());
+		if (score == UNKNOWN || chessMatch.getEnPassantSquare() < 0) {
+			return score;
+		}
+		
+		/*As tabelas não têm en passant: as capturas en passant legais são avaliadas aqui.
+		 Depois da captura não há en passant, então a consulta do filho não usa esta lista*/
+		MoveList moves = scratch.moves;
+		chessMatch.generateLegalMoves(moves);
+		int best = UNKNOWN;
+		boolean others = false;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			if ((Move.flags(move) & Move.EN_PASSANT) == 0) {
+				others = true;
+				continue;
+			}
+			chessMatch.makeMove(move);
+			int child = probe(chessMatch);
+			chessMatch.undoMove();
+			if (child == UNKNOWN) {
+				return UNKNOWN;
+			}
+			best = Math.max(best, Tablebase.parent(child));
+		}
+		if (best == UNKNOWN) {
+			return score;
+		}
+		return others ? Math.max(score, best) : best;
+	}
+	
+	/*Melhor lance da posição atual: o mate mais rápido, o empate ou a derrota mais
+	 demorada. Move.NONE se alguma posição necessária não estiver nas tabelas*/
+	public int bestMove(ChessMatch chessMatch) {
+		if (probe(chessMatch) == UNKNOWN) {
+			return Move.NONE;
+		}
+		//Lista separada da do probe, que os filhos com en passant usam
+		MoveList moves = SCRATCH.get().children;
+		chessMatch.generateLegalMoves(moves);
+		int best = Move.NONE;
+		int bestScore = UNKNOWN;
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			chessMatch.makeMove(move);
+			int child = probe(chessMatch);
+			chessMatch.undoMove();
+			if (child == UNKNOWN) {
+				return Move.NONE;
+			}
+			int score = Tablebase.parent(child);
+			if (score > bestScore) {
+				best = move;
+				bestScore = score;
+			}
+		}
+		return best;
+	}
+	
+	public static boolean isWin(int score) {
+		return score != UNKNOWN && score > 0;
+	}
+	
+	public static boolean isLoss(int score) {
+		return score != UNKNOWN && score < 0;
+	}
+	
+	//Plies até o mate de uma pontuação de vitória ou derrota
+	public static int plies(int score) {
+		return WIN - Math.abs(score);
+	}
+	
+	//Pontuação das count peças do scratch (tipos e cores pelos ordinais) com a vez de side
+	private int probe(Scratch scratch, int count, int side) {
+		if (count == 2) {
+			return 0;
+		}
+		int[] types = scratch.types;
+		int[] colors = scratch.colors;
+		int[] squares = scratch.squares;
+		int signature = Material.signature(types, colors, count);
+		Entry entry = entries[signature];
+		if (entry == null) {
+			Material material = Material.of(types, colors, count);
+			entry = new Entry(material, Material.flips(types, colors, count), get(material));
+			entries[signature] = entry;
+		}
+		Tablebase table = entry.table;
+		if (table == null) {
+			return UNKNOWN;
+		}
+		boolean flip = entry.flip;
+		int[] order = scratch.order;
+		int[] ordered = scratch.ordered;
+		entry.material.match(types, colors, count, flip, order);
+		for (int k = 0; k < count; k++) {
+			ordered[k] = flip ? squares[order[k]] ^ 56 : squares[order[k]];
+		}
+		int code = table.code(Tablebase.index(entry.material, ordered, flip ? 1 - side : side));
+		return code == Tablebase.ILLEGAL ? UNKNOWN : Tablebase.score(code);
+	}
+	
+	private Path path(Material material) {
+		return directory.resolve(material.getName() + EXTENSION);
+	}
+	
+	private static final class Entry {
+	
+		final Material material;
+		final boolean flip;
+		//null se não houver arquivo para o material
+		final Tablebase table;
+		
+		Entry(Material material, boolean flip, Tablebase table) {
+			this.material = material;
+			this.flip = flip;
+			this.table = table;
+		}
+	}
+	
+	private static final class Scratch {
+	
+		final int[] types = new int[Material.MAX_PIECES];
+		final int[] colors = new int[Material.MAX_PIECES];
+		final int[] squares = new int[Material.MAX_PIECES];
+		final int[] order = new int[Material.MAX_PIECES];
+		final int[] ordered = new int[Material.MAX_PIECES];
+		final MoveList moves = new MoveList();
+		final MoveList children = new MoveList();
+	}
+}
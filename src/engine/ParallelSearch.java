@@ -0,0 +1,172 @@
+package engine;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.book.OpeningBook;
+import chess.tablebase.Tablebases;
+
+/*
+ Busca em várias threads no modelo Lazy SMP: cada thread tem a sua cópia da
+ partida e a sua Search, todas buscam a mesma raiz e compartilham só a tabela
+ de transposição (que não usa travas). Cada thread auxiliar pula um padrão
+ diferente de profundidades (tamanho e fase do pulo pelo índice, como no Lazy
+ SMP do Stockfish), para não repetirem o mesmo trabalho; o que elas gravam na
+ tabela acelera a thread principal, que é quem respeita os limites e dá o
+ resultado. As Search são criadas uma vez e reaproveitadas, com killers e
+ histórico, entre as buscas. Com uma thread só a busca é a mesma da Search, na
+ própria thread de quem chama, e portanto determinística.
+
+ Com um livro de aberturas, a posição é procurada nele antes da busca e, se
+ estiver lá, o lance do livro é devolvido na hora (com profundidade 0). Com
+ tabelas de finais, o mesmo vale para as posições que estão nelas, com a
+ pontuação exata (mate ou empate).
+ */
+public class ParallelSearch {
+
+	/*Pulo de profundidades da auxiliar i, em SKIP_SIZE[(i - 1) % 20] e
+	 SKIP_PHASE[(i - 1) % 20]: 2 auxiliares de pulo 1, 4 de pulo 2, 6 de 3 e 8 de 4*/
+	private static final int[] SKIP_SIZE = { 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4 };
+	private static final int[] SKIP_PHASE = { 0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7 };
+	
+	private final TranspositionTable table;
+	private final int threads;
+	//Uma Search por thread, criadas na primeira busca
+	private Search[] pool;
+	private SearchListener listener;
+	private OpeningBook book;
+	private Tablebases tablebases;
+	private volatile Search[] workers;
+	
+	public ParallelSearch(TranspositionTable table, int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Thread count must be at least 1");
+		}
+		this.table = table;
+		this.threads = threads;
+	}
+	
+	public int getThreads() {
+		return threads;
+	}
+	
+	public TranspositionTable getTable() {
+		return table;
+	}
+	
+	//Recebe as iterações da thread principal
+	public void setListener(SearchListener listener) {
+		this.listener = listener;
+	}
+	
+	//Livro consultado antes de cada busca (null para não usar)
+	public void setBook(OpeningBook book) {
+		this.book = book;
+	}
+	
+	//Tabelas de finais consultadas antes de cada busca (null para não usar)
+	public void setTablebases(Tablebases tablebases) {
+		this.tablebases = tablebases;
+	}
+	
+	/*Busca o melhor lance do jogador atual da partida. A partida fornecida é usada
+	 pela thread principal (e volta ao estado original no fim); as auxiliares usam cópias*/
+	public SearchResult search(ChessMatch chessMatch, SearchLimits limits) {
+		if (book != null) {
+			int move = book.pickMove(chessMatch, ThreadLocalRandom.current().nextLong());
+			if (move != Move.NONE) {
+				return new SearchResult(move, 0, 0, 0, 0, new int[] { move });
+			}
+		}
+		if (tablebases != null) {
+			int score = tablebases.probe(chessMatch);
+			int move = score == Tablebases.UNKNOWN ? Move.NONE : tablebases.bestMove(chessMatch);
+			if (move != Move.NONE) {
+				//Mate em n plies nas tabelas vira a pontuação de mate da busca
+				if (score != 0) {
+					score = score > 0 ? Search.MATE - Tablebases.plies(score) : -Search.MATE + Tablebases.plies(score);
+				}
+				return new SearchResult(move, score, 0, 0, 0, new int[] { move });
+			}
+		}
+		Search[] group = pool(chessMatch);
+		Search main = group[0];
+		main.setListener(listener);
+		main.setMatch(chessMatch);
+		if (threads == 1) {
+			workers = group;
+			return main.search(limits);
+		}
+		
+		for (int i = 1; i < threads; i++) {
+			group[i].setMatch(new ChessMatch(chessMatch));
+		}
+		workers = group;
+		table.newSearch();
+		
+		Thread[] helpers = new Thread[threads - 1];
+		for (int i = 1; i < threads; i++) {
+			Search helper = group[i];
+			helpers[i - 1] = new Thread(() -> helper.search(new SearchLimits()), "search-helper-" + i);
+			helpers[i - 1].setDaemon(true);
+			helpers[i - 1].start();
+		}
+		try {
+			return main.search(limits);
+		}
+		finally {
+			for (int i = 1; i < threads; i++) {
+				group[i].stop();
+			}
+			for (Thread helper : helpers) {
+				try {
+					helper.join();
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+	
+	private Search[] pool(ChessMatch chessMatch) {
+		if (pool == null) {
+			Search[] group = new Search[threads];
+			for (int i = 0; i < threads; i++) {
+				group[i] = new Search(chessMatch, table);
+			}
+			if (threads > 1) {
+				group[0].setGroup(group, 0, 0);
+				for (int i = 1; i < threads; i++) {
+					group[i].setGroup(group, SKIP_SIZE[(i - 1) % SKIP_SIZE.length], SKIP_PHASE[(i - 1) % SKIP_PHASE.length]);
+				}
+			}
+			pool = group;
+		}
+		return pool;
+	}
+	
+	//Pede para todas as threads pararem; pode ser chamado de outra thread
+	public void stop() {
+		Search[] current = workers;
+		if (current != null) {
+			for (Search search : current) {
+				search.stop();
+			}
+		}
+	}
+	
+	//Nós de cada thread na busca atual (ou na última), a principal primeiro
+	public long[] getThreadNodes() {
+		Search[] current = workers;
+		if (current == null) {
+			return new long[0];
+		}
+		long[] nodes = new long[current.length];
+		for (int i = 0; i < current.length; i++) {
+			nodes[i] = current[i].getNodes();
+		}
+		return nodes;
+	}
+}
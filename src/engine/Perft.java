@@ -0,0 +1,62 @@
+package engine;
+
+import java.io.PrintStream;
+
+import chess.ChessMatch;
+import chess.Move;
+import chess.MoveList;
+
+/*
+ Perft: conta todos os caminhos de lances legais até a profundidade dada.
+ Comparando com contagens conhecidas de posições de teste, mostra se a geração
+ de lances, o makeMove e o undoMove estão corretos, e serve de medida de
+ velocidade. Os buffers de lances são criados uma vez por profundidade.
+ Como só entram lances legais, na última profundidade basta contar a lista.
+ */
+public class Perft {
+
+	private ChessMatch chessMatch;
+	private MoveList[] moves;
+	
+	public Perft(ChessMatch chessMatch, int maxDepth) {
+		this.chessMatch = chessMatch;
+		moves = new MoveList[maxDepth + 1];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = new MoveList();
+		}
+	}
+	
+	public long perft(int depth) {
+		if (depth == 0) {
+			return 1;
+		}
+		MoveList list = moves[depth];
+		chessMatch.generateLegalMoves(list);
+		if (depth == 1) {
+			return list.size();
+		}
+		long nodes = 0;
+		for (int i = 0; i < list.size(); i++) {
+			chessMatch.makeMove(list.get(i));
+			nodes += perft(depth - 1);
+			chessMatch.undoMove();
+		}
+		return nodes;
+	}
+	
+	//Imprime a contagem de cada lance da raiz ("divide") e retorna o total
+	public long divide(int depth, PrintStream out) {
+		MoveList list = moves[depth];
+		chessMatch.generateLegalMoves(list);
+		long total = 0;
+		for (int i = 0; i < list.size(); i++) {
+			int move = list.get(i);
+			chessMatch.makeMove(move);
+			long nodes = perft(depth - 1);
+			chessMatch.undoMove();
+			out.println(Move.toString(move) + ": " + nodes);
+			total += nodes;
+		}
+		return total;
+	}
+}
@@ -0,0 +1,509 @@
+package engine;
+
+import java.util.Arrays;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.Evaluation;
+import chess.Move;
+import chess.MoveList;
+
+/*
+ Busca alfa-beta com variante principal (PVS) e aprofundamento iterativo sobre
+ uma ChessMatch. Cada iteração usa uma janela de aspiração em volta do score
+ anterior, as folhas passam pela busca de quiescência (só capturas e promoções)
+ e os lances são ordenados por: lance da tabela de transposição, capturas por
+ MVV-LVA, killers e histórico. A partida é alterada com makeMove/undoMove e
+ volta ao estado original no fim; uma Search não deve ser usada por duas threads.
+ */
+public class Search {
+
+	public static final int MAX_DEPTH = 64;
+	public static final int INFINITE = 32000;
+	public static final int MATE = 31000;
+	
+	//Maior ply alcançável contando as extensões de xeque e a quiescência
+	private static final int MAX_PLY = 128;
+	private static final int MATE_BOUND = MATE - MAX_PLY;
+	private static final int DRAW = 0;
+	
+	private static final int ASPIRATION = 25;
+	//Os limites de nós e de tempo são conferidos a cada 1024 nós
+	private static final int CHECK_INTERVAL = 1023;
+	
+	//Faixas da ordenação de lances: lance da tabela > capturas e promoções > killers > histórico
+	private static final int HASH_MOVE_SCORE = 1 << 30;
+	private static final int CAPTURE_SCORE = 1 << 28;
+	private static final int KILLER_SCORE = 1 << 27;
+	private static final int HISTORY_MAX = 1 << 20;
+	
+	//Trocados pelo ParallelSearch a cada busca, que reaproveita as Search (e as suas tabelas)
+	private ChessMatch chessMatch;
+	private ChessBoard board;
+	private final TranspositionTable table;
+	
+	//Buffers por ply, criados uma vez
+	private final MoveList[] moves = new MoveList[MAX_PLY + 1];
+	private final int[][] orderScores = new int[MAX_PLY + 1][MoveList.CAPACITY];
+	private final MoveList pvMoves = new MoveList();
+	private final int[][] killers = new int[MAX_PLY + 1][2];
+	private final int[][] history = new int[2][ChessBoard.SQUARES * ChessBoard.SQUARES];
+	
+	private SearchListener listener;
+	private volatile boolean stopped;
+	private long nodes;
+	private long maxNodes;
+	private long deadline;
+	//Os limites só valem depois da primeira iteração, para sempre haver um lance
+	private boolean limited;
+	private int rootBestMove;
+	
+	/*No modo paralelo (ParallelSearch): as buscas do grupo, para o limite de nós
+	 valer para a soma, e quais profundidades esta busca pula (ver skips)*/
+	private Search[] group;
+	private int skipSize;
+	private int skipPhase;
+	
+	public Search(ChessMatch chessMatch, TranspositionTable table) {
+		this.chessMatch = chessMatch;
+		this.board = chessMatch.getBoard();
+		this.table = table;
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = new MoveList();
+		}
+	}
+	
+	public Search(ChessMatch chessMatch) {
+		this(chessMatch, new TranspositionTable(16));
+	}
+	
+	public void setListener(SearchListener listener) {
+		this.listener = listener;
+	}
+	
+	public TranspositionTable getTable() {
+		return table;
+	}
+	
+	//Nós visitados na busca atual (ou na última)
+	public long getNodes() {
+		return nodes;
+	}
+	
+	/*skipSize 0 não pula nada (a thread principal). Senão a busca pula as
+	 profundidades em que (depth + skipPhase) / skipSize é ímpar: com tamanhos e
+	 fases diferentes, cada auxiliar começa e avança por profundidades diferentes*/
+	void setGroup(Search[] group, int skipSize, int skipPhase) {
+		this.group = group;
+		this.skipSize = skipSize;
+		this.skipPhase = skipPhase;
+	}
+	
+	//Nova partida para a próxima busca, mantendo killers e histórico; stopped volta a false
+	void setMatch(ChessMatch chessMatch) {
+		this.chessMatch = chessMatch;
+		this.board = chessMatch.getBoard();
+		stopped = false;
+	}
+	
+	private boolean skips(int depth) {
+		return skipSize != 0 && ((depth + skipPhase) / skipSize) % 2 != 0;
+	}
+	
+	//Nós desta busca ou, no modo paralelo, de todas as threads
+	private long totalNodes() {
+		if (group == null) {
+			return nodes;
+		}
+		long total = 0;
+		for (Search search : group) {
+			total += search.nodes;
+		}
+		return total;
+	}
+	
+	//Pede para a busca parar; pode ser chamado de outra thread
+	public void stop() {
+		stopped = true;
+	}
+	
+	public static boolean isMateScore(int score) {
+		return Math.abs(score) >= MATE_BOUND;
+	}
+	
+	/*Busca o melhor lance do jogador atual dentro dos limites. Retorna o resultado
+	 da última iteração completa; sem lances legais, o lance é Move.NONE*/
+	public SearchResult search(SearchLimits limits) {
+		long start = System.nanoTime();
+		nodes = 0;
+		//No grupo o ParallelSearch zera o stopped antes de publicar a busca, e um stop() anterior ao início não pode se perder
+		if (group == null) {
+			stopped = false;
+		}
+		limited = false;
+		maxNodes = limits.getNodes();
+		deadline = limits.getMillis() > 0 ? start + limits.getMillis() * 1_000_000L : 0;
+		prepare();
+		
+		MoveList rootMoves = moves[0];
+		chessMatch.generateLegalMoves(rootMoves);
+		if (rootMoves.isEmpty()) {
+			return new SearchResult(Move.NONE, chessMatch.getCheck() ? -MATE : DRAW, 0, 0, System.nanoTime() - start, new int[0]);
+		}
+		rootBestMove = rootMoves.get(0);
+		
+		SearchResult result = null;
+		int score = 0;
+		for (int depth = 1; depth <= limits.getDepth(); depth++) {
+			if (skips(depth)) {
+				continue;
+			}
+			int delta = ASPIRATION;
+			int alpha = -INFINITE;
+			int beta = INFINITE;
+			if (depth >= 5) {
+				alpha = Math.max(score - delta, -INFINITE);
+				beta = Math.min(score + delta, INFINITE);
+			}
+			while (true) {
+				int value = search(depth, alpha, beta, 0);
+				if (stopped) {
+					break;
+				}
+				//Fora da janela: alarga do lado que falhou e busca de novo
+				if (value <= alpha) {
+					alpha = Math.max(value - delta, -INFINITE);
+				}
+				else if (value >= beta) {
+					beta = Math.min(value + delta, INFINITE);
+				}
+				else {
+					score = value;
+					break;
+				}
+				delta *= 2;
+			}
+			if (stopped) {
+				break;
+			}
+			result = new SearchResult(rootBestMove, score, depth, totalNodes(), System.nanoTime() - start, principalVariation(depth));
+			limited = true;
+			if (listener != null) {
+				listener.iterationFinished(result);
+			}
+			//Mate encontrado dentro do horizonte: buscar mais fundo não muda o lance
+			if (isMateScore(score) && MATE - Math.abs(score) <= depth) {
+				break;
+			}
+			//Não começa uma iteração que provavelmente não terminaria no tempo restante
+			if (deadline != 0 && System.nanoTime() - start > (deadline - start) / 2) {
+				break;
+			}
+			if (totalNodes() >= maxNodes) {
+				break;
+			}
+		}
+		if (result == null) {
+			result = new SearchResult(rootBestMove, 0, 0, totalNodes(), System.nanoTime() - start, new int[] { rootBestMove });
+		}
+		return result;
+	}
+	
+	//Prepara as tabelas de ordenação: killers zerados e histórico reduzido à metade
+	private void prepare() {
+		//No modo paralelo quem avança a geração da tabela é o ParallelSearch, uma vez só
+		if (group == null) {
+			table.newSearch();
+		}
+		for (int[] k : killers) {
+			k[0] = Move.NONE;
+			k[1] = Move.NONE;
+		}
+		for (int[] side : history) {
+			for (int i = 0; i < side.length; i++) {
+				side[i] /= 2;
+			}
+		}
+	}
+	
+	private int search(int depth, int alpha, int beta, int ply) {
+		boolean pvNode = beta - alpha > 1;
+		boolean inCheck = chessMatch.getCheck();
+		//Extensão de xeque: não deixa a quiescência começar com o rei atacado
+		if (inCheck) {
+			depth++;
+		}
+		if (depth <= 0) {
+			return quiescence(alpha, beta, ply);
+		}
+		if ((++nodes & CHECK_INTERVAL) == 0) {
+			checkLimits();
+		}
+		if (stopped) {
+			return 0;
+		}
+		if (ply > 0) {
+			if (chessMatch.getHalfmoveClock() >= 100 || chessMatch.isRepetition()) {
+				return DRAW;
+			}
+			//Nenhum mate daqui pode ser mais rápido que um já encontrado
+			alpha = Math.max(alpha, -MATE + ply);
+			beta = Math.min(beta, MATE - ply - 1);
+			if (alpha >= beta) {
+				return alpha;
+			}
+			if (ply >= MAX_PLY - 1) {
+				return evaluate();
+			}
+		}
+		
+		long entry = table.probe(chessMatch.getKey());
+		int hashMove = Move.NONE;
+		if (entry != 0) {
+			hashMove = TranspositionTable.move(entry);
+			if (!pvNode && TranspositionTable.depth(entry) >= depth) {
+				int score = fromTable(TranspositionTable.score(entry), ply);
+				int bound = TranspositionTable.bound(entry);
+				if (bound == TranspositionTable.EXACT
+						|| (bound == TranspositionTable.LOWER && score >= beta)
+						|| (bound == TranspositionTable.UPPER && score <= alpha)) {
+					return score;
+				}
+			}
+		}
+		
+		MoveList list = moves[ply];
+		chessMatch.generateLegalMoves(list);
+		if (list.isEmpty()) {
+			return inCheck ? -MATE + ply : DRAW;
+		}
+		scoreMoves(list, ply, hashMove);
+		
+		int originalAlpha = alpha;
+		int bestScore = -INFINITE;
+		int bestMove = Move.NONE;
+		for (int i = 0; i < list.size(); i++) {
+			int move = pickMove(list, ply, i);
+			chessMatch.makeMove(move);
+			int score;
+			if (i == 0) {
+				score = -search(depth - 1, -beta, -alpha, ply + 1);
+			}
+			else {
+				//Os outros lances só precisam provar que não são melhores: janela nula, e busca completa se forem
+				score = -search(depth - 1, -alpha - 1, -alpha, ply + 1);
+				if (score > alpha && score < beta) {
+					score = -search(depth - 1, -beta, -alpha, ply + 1);
+				}
+			}
+			chessMatch.undoMove();
+			if (stopped) {
+				return 0;
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				bestMove = move;
+				if (score > alpha) {
+					alpha = score;
+					if (ply == 0) {
+						rootBestMove = move;
+					}
+					if (alpha >= beta) {
+						if (!Move.isCapture(move) && !Move.isPromotion(move)) {
+							updateQuietStats(move, ply, depth);
+						}
+						break;
+					}
+				}
+			}
+		}
+		
+		int bound = bestScore >= beta ? TranspositionTable.LOWER
+				: bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+		table.store(chessMatch.getKey(), bound == TranspositionTable.UPPER ? Move.NONE : bestMove,
+				toTable(bestScore, ply), depth, bound);
+		return bestScore;
+	}
+	
+	//Só capturas e promoções até a posição ficar quieta; em xeque, todas as saídas
+	private int quiescence(int alpha, int beta, int ply) {
+		if ((++nodes & CHECK_INTERVAL) == 0) {
+			checkLimits();
+		}
+		if (stopped) {
+			return 0;
+		}
+		boolean inCheck = chessMatch.getCheck();
+		if (ply >= MAX_PLY) {
+			return evaluate();
+		}
+		int bestScore = -INFINITE;
+		if (!inCheck) {
+			//Quem joga pode não capturar nada e ficar com a avaliação atual
+			bestScore = evaluate();
+			if (bestScore >= beta) {
+				return bestScore;
+			}
+			alpha = Math.max(alpha, bestScore);
+		}
+		
+		MoveList list = moves[ply];
+		chessMatch.generateLegalMoves(list);
+		if (inCheck && list.isEmpty()) {
+			return -MATE + ply;
+		}
+		if (!inCheck) {
+			int count = 0;
+			for (int i = 0; i < list.size(); i++) {
+				int move = list.get(i);
+				if (Move.isCapture(move) || Move.isPromotion(move)) {
+					list.set(count++, move);
+				}
+			}
+			list.truncate(count);
+		}
+		scoreMoves(list, ply, Move.NONE);
+		
+		for (int i = 0; i < list.size(); i++) {
+			int move = pickMove(list, ply, i);
+			chessMatch.makeMove(move);
+			int score = -quiescence(-beta, -alpha, ply + 1);
+			chessMatch.undoMove();
+			if (stopped) {
+				return 0;
+			}
+			if (score > bestScore) {
+				bestScore = score;
+				if (score > alpha) {
+					alpha = score;
+					if (alpha >= beta) {
+						break;
+					}
+				}
+			}
+		}
+		return bestScore;
+	}
+	
+	//A avaliação é mantida incrementalmente pela partida a cada lance
+	private int evaluate() {
+		return chessMatch.evaluate();
+	}
+	
+	private void scoreMoves(MoveList list, int ply, int hashMove) {
+		int[] scores = orderScores[ply];
+		int[] sideHistory = history[chessMatch.getCurrentPlayer().ordinal()];
+		for (int i = 0; i < list.size(); i++) {
+			int move = list.get(i);
+			int from = Move.from(move);
+			int to = Move.to(move);
+			if (move == hashMove) {
+				scores[i] = HASH_MOVE_SCORE;
+			}
+			else if (Move.isCapture(move) || Move.isPromotion(move)) {
+				//MVV-LVA: a vítima mais valiosa primeiro e, entre elas, o atacante mais barato
+				int score = CAPTURE_SCORE;
+				if (Move.isCapture(move)) {
+					int victim = (Move.flags(move) & Move.EN_PASSANT) != 0 ? 0 : board.pieceAt(to).getType().ordinal();
+					score += (victim + 1) * 16 - board.pieceAt(from).getType().ordinal();
+				}
+				if (Move.isPromotion(move)) {
+					score += Evaluation.value(Move.promotion(move));
+				}
+				scores[i] = score;
+			}
+			else if (move == killers[ply][0]) {
+				scores[i] = KILLER_SCORE + 1;
+			}
+			else if (move == killers[ply][1]) {
+				scores[i] = KILLER_SCORE;
+			}
+			else {
+				scores[i] = sideHistory[from * ChessBoard.SQUARES + to];
+			}
+		}
+	}
+	
+	//Ordenação por seleção preguiçosa: traz para a posição i o lance de maior nota ainda não jogado
+	private int pickMove(MoveList list, int ply, int i) {
+		int[] scores = orderScores[ply];
+		int best = i;
+		for (int j = i + 1; j < list.size(); j++) {
+			if (scores[j] > scores[best]) {
+				best = j;
+			}
+		}
+		int move = list.get(best);
+		if (best != i) {
+			list.set(best, list.get(i));
+			list.set(i, move);
+			int score = scores[best];
+			scores[best] = scores[i];
+			scores[i] = score;
+		}
+		return move;
+	}
+	
+	//Lance quieto que causou corte: vira killer do ply e ganha pontos no histórico
+	private void updateQuietStats(int move, int ply, int depth) {
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		int[] sideHistory = history[chessMatch.getCurrentPlayer().ordinal()];
+		int index = Move.from(move) * ChessBoard.SQUARES + Move.to(move);
+		sideHistory[index] += depth * depth;
+		if (sideHistory[index] > HISTORY_MAX) {
+			for (int i = 0; i < sideHistory.length; i++) {
+				sideHistory[i] /= 2;
+			}
+		}
+	}
+	
+	private void checkLimits() {
+		if (limited && (totalNodes() >= maxNodes || (deadline != 0 && System.nanoTime() >= deadline))) {
+			stopped = true;
+		}
+	}
+	
+	//Scores de mate na tabela são relativos à posição guardada, não à raiz
+	private static int toTable(int score, int ply) {
+		if (score >= MATE_BOUND) {
+			return score + ply;
+		}
+		if (score <= -MATE_BOUND) {
+			return score - ply;
+		}
+		return score;
+	}
+	
+	private static int fromTable(int score, int ply) {
+		if (score >= MATE_BOUND) {
+			return score - ply;
+		}
+		if (score <= -MATE_BOUND) {
+			return score + ply;
+		}
+		return score;
+	}
+	
+	//Segue os lances da tabela de transposição a partir do melhor lance da raiz
+	private int[] principalVariation(int depth) {
+		int[] pv = new int[depth];
+		int length = 0;
+		int move = rootBestMove;
+		while (length < depth && move != Move.NONE) {
+			chessMatch.generateLegalMoves(pvMoves);
+			if (!pvMoves.contains(move)) {
+				break;
+			}
+			chessMatch.makeMove(move);
+			pv[length++] = move;
+			move = TranspositionTable.move(table.probe(chessMatch.getKey()));
+		}
+		for (int i = 0; i < length; i++) {
+			chessMatch.undoMove();
+		}
+		return Arrays.copyOf(pv, length);
+	}
+}
@@ -0,0 +1,59 @@
+package engine;
+
+/*
+ Limites de uma busca: profundidade máxima, quantidade de nós e tempo em
+ milissegundos. A busca para no primeiro limite atingido; o que não for
+ definido fica sem limite.
+ */
+public class SearchLimits {
+
+	private int depth = Search.MAX_DEPTH;
+	private long nodes = Long.MAX_VALUE;
+	private long millis;
+	
+	public SearchLimits() {
+	}
+	
+	public static SearchLimits depth(int depth) {
+		SearchLimits limits = new SearchLimits();
+		limits.setDepth(depth);
+		return limits;
+	}
+	
+	public static SearchLimits nodes(long nodes) {
+		SearchLimits limits = new SearchLimits();
+		limits.setNodes(nodes);
+		return limits;
+	}
+	
+	public static SearchLimits millis(long millis) {
+		SearchLimits limits = new SearchLimits();
+		limits.setMillis(millis);
+		return limits;
+	}
+	
+	public int getDepth() {
+		return depth;
+	}
+	
+	public void setDepth(int depth) {
+		this.depth = Math.max(1, Math.min(depth, Search.MAX_DEPTH));
+	}
+	
+	public long getNodes() {
+		return nodes;
+	}
+	
+	public void setNodes(long nodes) {
+		this.nodes = nodes;
+	}
+	
+	//0 significa sem limite de tempo
+	public long getMillis() {
+		return millis;
+	}
+	
+	public void setMillis(long millis) {
+		this.millis = millis;
+	}
+}
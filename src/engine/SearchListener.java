@@ -0,0 +1,7 @@
+package engine;
+
+//Recebe o resultado de cada iteração completa da busca (para mostrar o progresso)
+public interface SearchListener {
+
+	void iterationFinished(SearchResult result);
+}
@@ -0,0 +1,84 @@
+package engine;
+
+import chess.Move;
+
+/*
+ Resultado de uma iteração da busca: melhor lance, score (do ponto de vista de
+ quem joga, em centipeões), profundidade, nós visitados, tempo e a variante
+ principal.
+ */
+public class SearchResult {
+
+	private final int bestMove;
+	private final int score;
+	private final int depth;
+	private final long nodes;
+	private final long nanos;
+	private final int[] pv;
+	
+	public SearchResult(int bestMove, int score, int depth, long nodes, long nanos, int[] pv) {
+		this.bestMove = bestMove;
+		this.score = score;
+		this.depth = depth;
+		this.nodes = nodes;
+		this.nanos = nanos;
+		this.pv = pv;
+	}
+	
+	public int getBestMove() {
+		return bestMove;
+	}
+	
+	public int getScore() {
+		return score;
+	}
+	
+	public int getDepth() {
+		return depth;
+	}
+	
+	public long getNodes() {
+		return nodes;
+	}
+	
+	public long getMillis() {
+		return nanos / 1_000_000;
+	}
+	
+	//Nós por segundo
+	public long getNps() {
+		return nps(nodes, nanos);
+	}
+	
+	//Em ponto flutuante: nodes * 10^9 estoura o long passando de uns 9,2 bilhões de nós
+	public static long nps(long nodes, long nanos) {
+		return (long) (nodes * 1e9 / Math.max(1, nanos));
+	}
+	
+	public int[] getPv() {
+		return pv.clone();
+	}
+	
+	//Se o score for de mate, em quantos lances (negativo se quem joga leva o mate); senão 0
+	public int getMateIn() {
+		if (!Search.isMateScore(score)) {
+			return 0;
+		}
+		int plies = Search.MATE - Math.abs(score);
+		return score > 0 ? (plies + 1) / 2 : -(plies + 1) / 2;
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("depth ").append(depth);
+		int mate = getMateIn();
+		sb.append(mate != 0 ? " mate " + mate : " score " + score);
+		sb.append(" nodes ").append(nodes).append(" nps ").append(getNps()).append(" time ").append(getMillis());
+		sb.append(" pv");
+		for (int move : pv) {
+			sb.append(' ').append(Move.toString(move));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,203 @@
+package engine;
+
+import java.util.Arrays;
+
+import chess.ChessMatch;
+import chess.Move;
+
+/*
+ Tabela de transposição de tamanho fixo, guardada em vetores de long. Cada
+ entrada ocupa dois longs: (chave ^ dados, dados). Quem lê confere a chave
+ refazendo o XOR, então uma entrada escrita pela metade por outra thread
+ simplesmente não bate e é tratada como ausente. Assim várias threads podem
+ ler e gravar ao mesmo tempo sem nenhuma trava.
+
+ As entradas são agrupadas em buckets de 4 (64 bytes, uma linha de cache) e a
+ chave escolhe o bucket; dentro dele a entrada substituída é a mais rasa ou de
+ uma busca mais antiga.
+
+ Formato dos dados (64 bits):
+ bits 0-19  lance (ver Move)
+ bits 20-35 score (16 bits com sinal)
+ bits 36-43 profundidade
+ bits 44-45 tipo de limite (UPPER, LOWER ou EXACT)
+ bits 46-53 geração da busca que gravou a entrada
+ bits 54-61 época (número de clears) em que a entrada foi gravada
+ */
+public class TranspositionTable {
+
+	public static final int NONE = 0;
+	public static final int UPPER = 1;
+	public static final int LOWER = 2;
+	public static final int EXACT = 3;
+	
+	public static final int MIN_MEGABYTES = 1;
+	public static final int MAX_MEGABYTES = 16 * 1024;
+	
+	private static final int BUCKET_ENTRIES = 4;
+	private static final int BUCKET_LONGS = BUCKET_ENTRIES * 2;
+	//Cada segmento tem 2^24 longs (128 MB), para passar do limite de tamanho de um vetor
+	private static final int SEGMENT_BITS = 24;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+	
+	private final long[][] segments;
+	private final long bucketMask;
+	private final int megabytes;
+	
+	/*A geração muda a cada busca (para envelhecer as entradas) e o sal muda a cada
+	 clear: como ele entra no XOR da chave, todas as entradas antigas deixam de
+	 bater de uma vez, sem precisar zerar a tabela*/
+	private volatile int generation;
+	private volatile long salt;
+	/*Época do clear atual. As entradas de épocas anteriores não batem mais (o sal
+	 mudou) e contam como vazias na substituição, em vez de ficarem protegidas
+	 pela profundidade*/
+	private volatile int epoch;
+	
+	public TranspositionTable(int megabytes) {
+		if (megabytes < MIN_MEGABYTES || megabytes > MAX_MEGABYTES) {
+			throw new IllegalArgumentException("Hash size must be between " + MIN_MEGABYTES + " and " + MAX_MEGABYTES + " MB");
+		}
+		//Maior potência de 2 de buckets que cabe no orçamento
+		long buckets = Long.highestOneBit(((long) megabytes << 20) / (BUCKET_LONGS * 8));
+		long longs = buckets * BUCKET_LONGS;
+		int segmentCount = (int) Math.max(1, longs >>> SEGMENT_BITS);
+		int segmentLength = (int) Math.min(longs, 1L << SEGMENT_BITS);
+		segments = new long[segmentCount][segmentLength];
+		bucketMask = buckets - 1;
+		this.megabytes = megabytes;
+	}
+	
+	public int getMegabytes() {
+		return megabytes;
+	}
+	
+	public long getEntryCount() {
+		return (bucketMask + 1) * BUCKET_ENTRIES;
+	}
+	
+	//Chamado no início de cada busca: entradas de buscas anteriores passam a ser substituídas primeiro
+	public void newSearch() {
+		generation = (generation + 1) & 0xFF;
+	}
+	
+	//Esvazia a tabela em O(1) trocando o sal das chaves (entre partidas, por exemplo)
+	public void clear() {
+		salt = salt * 0x9E3779B97F4A7C15L + 0xD1B54A32D192ED03L;
+		epoch = (epoch + 1) & 0xFF;
+		newSearch();
+	}
+	
+	//Zera de fato toda a memória da tabela
+	public void reset() {
+		for (long[] segment : segments) {
+			Arrays.fill(segment, 0L);
+		}
+		clear();
+	}
+	
+	public long probe(ChessMatch chessMatch) {
+		return probe(chessMatch.getKey());
+	}
+	
+	//Retorna os dados da entrada da chave fornecida, ou 0 se não houver
+	public long probe(long key) {
+		key ^= salt;
+		long index = (key & bucketMask) * BUCKET_LONGS;
+		long[] segment = segments[(int) (index >>> SEGMENT_BITS)];
+		int offset = (int) (index & SEGMENT_MASK);
+		for (int i = offset; i < offset + BUCKET_LONGS; i += 2) {
+			long data = segment[i + 1];
+			if ((segment[i] ^ data) == key && data != 0) {
+				return data;
+			}
+		}
+		return 0L;
+	}
+	
+	public void store(ChessMatch chessMatch, int move, int score, int depth, int bound) {
+		store(chessMatch.getKey(), move, score, depth, bound);
+	}
+	
+	public void store(long key, int move, int score, int depth, int bound) {
+		key ^= salt;
+		int currentGeneration = generation;
+		int currentEpoch = epoch;
+		long index = (key & bucketMask) * BUCKET_LONGS;
+		long[] segment = segments[(int) (index >>> SEGMENT_BITS)];
+		int offset = (int) (index & SEGMENT_MASK);
+		
+		int replace = offset;
+		int worst = Integer.MAX_VALUE;
+		for (int i = offset; i < offset + BUCKET_LONGS; i += 2) {
+			long data = segment[i + 1];
+			if ((segment[i] ^ data) == key) {
+				//Mesma posição: mantém o lance antigo se a nova busca não achou nenhum
+				if (move == Move.NONE) {
+					move = move(data);
+				}
+				replace = i;
+				break;
+			}
+			//Valor de permanência: profundidade menos 8 por geração de idade; vazia ou de antes do clear, nada
+			int age = (currentGeneration - generation(data)) & 0xFF;
+			int value = data == 0 || epoch(data) != currentEpoch ? Integer.MIN_VALUE : depth(data) - 8 * age;
+			if (value < worst) {
+				worst = value;
+				replace = i;
+			}
+		}
+		long data = pack(move, score, Math.max(0, Math.min(depth, 255)), bound, currentGeneration, currentEpoch);
+		segment[replace] = key ^ data;
+		segment[replace + 1] = data;
+	}
+	
+	//Fração ocupada por entradas da busca atual, em milésimos (amostra dos primeiros 1000 buckets)
+	public int hashfull() {
+		long[] segment = segments[0];
+		int buckets = (int) Math.min(1000, bucketMask + 1);
+		int currentGeneration = generation;
+		int currentEpoch = epoch;
+		int used = 0;
+		for (int i = 0; i < buckets * BUCKET_LONGS; i += 2) {
+			long data = segment[i + 1];
+			if (data != 0 && generation(data) == currentGeneration && epoch(data) == currentEpoch) {
+				used++;
+			}
+		}
+		return used * 1000 / (buckets * BUCKET_ENTRIES);
+	}
+	
+	private static long pack(int move, int score, int depth, int bound, int generation, int epoch) {
+		return (move & 0xFFFFFL)
+				| ((score & 0xFFFFL) << 20)
+				| ((long) (depth & 0xFF) << 36)
+				| ((long) bound << 44)
+				| ((long) generation << 46)
+				| ((long) epoch << 54);
+	}
+	
+	public static int move(long data) {
+		return (int) (data & 0xFFFFF);
+	}
+	
+	public static int score(long data) {
+		return (short) (data >>> 20);
+	}
+	
+	public static int depth(long data) {
+		return (int) ((data >>> 36) & 0xFF);
+	}
+	
+	public static int bound(long data) {
+		return (int) ((data >>> 44) & 3);
+	}
+	
+	private static int generation(long data) {
+		return (int) ((data >>> 46) & 0xFF);
+	}
+	
+	private static int epoch(long data) {
+		return (int) ((data >>> 54) & 0xFF);
+	}
+}
@@ -0,0 +1,125 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ Histograma de valores (tempos em nanossegundos) em faixas log-lineares, no
+ estilo do HdrHistogram: de 0 a 15 cada valor tem a sua faixa, e cada potência
+ de 2 acima disso é dividida em 16 faixas iguais, então o erro de um percentil
+ é no máximo 1/16 (6%) do valor. Valores acima de 2^41 (uns 36 minutos em ns)
+ caem na última faixa. O record é seguro para várias threads e não aloca.
+ */
+public final class Histogram {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB = 1 << SUB_BITS;
+	private static final int MAX_MAGNITUDE = 40;
+	public static final int BUCKETS = (MAX_MAGNITUDE - SUB_BITS + 2) * SUB;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+	
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts.incrementAndGet(bucket(value));
+		sum.add(value);
+		//O máximo só é escrito quando aumenta, o que fica raro depois do aquecimento
+		long current = max.get();
+		while (value > current && !max.compareAndSet(current, value)) {
+			current = max.get();
+		}
+	}
+	
+	//Faixa do valor: o próprio valor até 15, depois 16 faixas por potência de 2
+	static int bucket(long value) {
+		if (value < SUB) {
+			return (int) value;
+		}
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		if (magnitude > MAX_MAGNITUDE) {
+			return BUCKETS - 1;
+		}
+		return (magnitude - SUB_BITS + 1) * SUB + (int) ((value >>> (magnitude - SUB_BITS)) & (SUB - 1));
+	}
+	
+	//Menor valor que cai na faixa
+	static long lowest(int bucket) {
+		if (bucket < SUB) {
+			return bucket;
+		}
+		int magnitude = bucket / SUB + SUB_BITS - 1;
+		return (long) (SUB + bucket % SUB) << (magnitude - SUB_BITS);
+	}
+	
+	//Maior valor que cai na faixa
+	static long highest(int bucket) {
+		if (bucket < SUB) {
+			return bucket;
+		}
+		int magnitude = bucket / SUB + SUB_BITS - 1;
+		return lowest(bucket) + (1L << (magnitude - SUB_BITS)) - 1;
+	}
+	
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+	
+	public long getSum() {
+		return sum.sum();
+	}
+	
+	public long getMax() {
+		return max.get();
+	}
+	
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0.0 : (double) getSum() / count;
+	}
+	
+	/*Valor no percentil (de 0 a 100): o maior valor da faixa onde ele cai, como no
+	 HdrHistogram, limitado ao máximo registrado*/
+	public long getPercentile(double percentile) {
+		long count = getCount();
+		if (count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(highest(i), getMax());
+			}
+		}
+		return getMax();
+	}
+	
+	//Cópia que ninguém mais altera, para ler vários percentis do mesmo momento
+	public Histogram copy() {
+		Histogram copy = new Histogram();
+		for (int i = 0; i < BUCKETS; i++) {
+			copy.counts.set(i, counts.get(i));
+		}
+		copy.sum.add(sum.sum());
+		copy.max.set(max.get());
+		return copy;
+	}
+	
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		sum.reset();
+		max.set(0);
+	}
+}
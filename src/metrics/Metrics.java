@@ -0,0 +1,131 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ Registro dos timers do programa. As métricas são ligadas na partida da JVM com
+ -Dchess.metrics=true; o ENABLED é uma constante, então com elas desligadas o
+ JIT elimina os testes "if (Metrics.ENABLED)" e o custo é zero. Ligadas, toda
+ chamada é contada e 1 em cada -Dchess.metrics.sampling chamadas (16 por padrão,
+ arredondado para potência de 2; 1 mede todas) tem o tempo medido, para que o
+ nanoTime não pese nas operações de poucos nanossegundos. Cada timer é publicado
+ no JMX como chess:type=Timer,name=<nome> e pode ser mandado para os exporters.
+ */
+public final class Metrics {
+
+	public static final boolean ENABLED = Boolean.getBoolean("chess.metrics");
+	public static final int SAMPLING = Integer.highestOneBit(Math.max(1, Integer.getInteger("chess.metrics.sampling", 16) * 2 - 1));
+	
+	private static final String DOMAIN = "chess";
+	private static final Map<String, Timer> TIMERS = new TreeMap<>();
+	private static final List<MetricsExporter> EXPORTERS = new CopyOnWriteArrayList<>();
+	//Exporters que já falharam alguma vez, para avisar da falha só na primeira
+	private static final Set<MetricsExporter> FAILED = ConcurrentHashMap.newKeySet();
+	private static volatile RuntimeException exportFailure;
+	private static ScheduledExecutorService scheduler;
+	
+	private Metrics() {
+	}
+	
+	//Timer com o nome, criado (e publicado no JMX, se ligado) na primeira chamada
+	public static synchronized Timer timer(String name) {
+		Timer timer = TIMERS.get(name);
+		if (timer == null) {
+			timer = new Timer(name, SAMPLING - 1);
+			if (ENABLED) {
+				register(timer);
+			}
+			TIMERS.put(name, timer);
+		}
+		return timer;
+	}
+	
+	private static void register(Timer timer) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(timer, new ObjectName(DOMAIN + ":type=Timer,name=" + timer.getName()));
+		}
+		catch (JMException e) {
+			throw new IllegalStateException("Could not register timer " + timer.getName(), e);
+		}
+	}
+	
+	//Timers em ordem de nome
+	public static synchronized List<Timer> timers() {
+		return new ArrayList<>(TIMERS.values());
+	}
+	
+	public static synchronized void reset() {
+		for (Timer timer : TIMERS.values()) {
+			timer.reset();
+		}
+	}
+	
+	public static void addExporter(MetricsExporter exporter) {
+		EXPORTERS.add(exporter);
+	}
+	
+	public static void removeExporter(MetricsExporter exporter) {
+		EXPORTERS.remove(exporter);
+		FAILED.remove(exporter);
+	}
+	
+	/*Manda os timers para todos os exporters. A falha de um não impede os outros:
+	 a primeira de cada exporter vai para o handler padrão de exceções não tratadas
+	 (se houver) e fica no getExportFailure, e as seguintes são ignoradas, para um
+	 exporter quebrado não encher o log a cada período*/
+	public static void export() {
+		List<Timer> timers = timers();
+		for (MetricsExporter exporter : EXPORTERS) {
+			try {
+				exporter.export(timers);
+			}
+			catch (RuntimeException e) {
+				if (FAILED.add(exporter)) {
+					report(e);
+				}
+			}
+		}
+	}
+	
+	private static void report(RuntimeException e) {
+		if (exportFailure == null) {
+			exportFailure = e;
+		}
+		Thread.UncaughtExceptionHandler handler = Thread.getDefaultUncaughtExceptionHandler();
+		if (handler != null) {
+			handler.uncaughtException(Thread.currentThread(), e);
+		}
+	}
+	
+	//Primeira falha de um exporter, ou null se nenhum falhou
+	public static RuntimeException getExportFailure() {
+		return exportFailure;
+	}
+	
+	//Chama o export periodicamente numa thread daemon; cancelar o retorno para parar
+	public static synchronized ScheduledFuture<?> exportEvery(long period, TimeUnit unit) {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+				Thread thread = new Thread(runnable, "metrics-export");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		//O export não deixa escapar a falha de um exporter, que cancelaria as próximas execuções
+		return scheduler.scheduleAtFixedRate(Metrics::export, period, period, unit);
+	}
+}
@@ -0,0 +1,13 @@
+package metrics;
+
+import java.util.List;
+
+/*
+ Recebe os timers a cada Metrics.export (ou a cada período do exportEvery),
+ para mandar para um sistema de monitoramento. É chamado numa thread só por vez
+ no exportEvery, mas o export manual pode vir de qualquer thread.
+ */
+public interface MetricsExporter {
+
+	void export(List<Timer> timers);
+}
@@ -0,0 +1,28 @@
+package metrics;
+
+import java.io.PrintStream;
+import java.util.List;
+
+//Escreve uma linha por timer com chamadas e percentis (no System.err por padrão, para não misturar com o UCI)
+public class TextExporter implements MetricsExporter {
+
+	private final PrintStream out;
+	
+	public TextExporter() {
+		this(System.err);
+	}
+	
+	public TextExporter(PrintStream out) {
+		this.out = out;
+	}
+	
+	@Override
+	public void export(List<Timer> timers) {
+		for (Timer timer : timers) {
+			if (timer.getCalls() > 0) {
+				out.println(timer);
+			}
+		}
+		out.flush();
+	}
+}
@@ -0,0 +1,111 @@
+package metrics;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ Conta as chamadas de uma operação e mede o tempo de uma amostra delas (ver
+ Metrics.SAMPLING). Uso, sempre atrás do Metrics.ENABLED, que é constante e
+ some do código compilado quando as métricas estão desligadas:
+   long start = TIMER.start();
+   try { ... } finally { TIMER.stop(start); }
+ */
+public final class Timer implements TimerMBean {
+
+	//Devolvido pelo start quando a chamada não foi sorteada para medir o tempo
+	public static final long NOT_SAMPLED = Long.MIN_VALUE;
+	
+	private final String name;
+	private final int sampleMask;
+	private final LongAdder calls = new LongAdder();
+	private final Histogram latency = new Histogram();
+	
+	Timer(String name, int sampleMask) {
+		this.name = name;
+		this.sampleMask = sampleMask;
+	}
+	
+	public long start() {
+		calls.increment();
+		if ((ThreadLocalRandom.current().nextInt() & sampleMask) != 0) {
+			return NOT_SAMPLED;
+		}
+		return System.nanoTime();
+	}
+	
+	public void stop(long start) {
+		if (start != NOT_SAMPLED) {
+			latency.record(System.nanoTime() - start);
+		}
+	}
+	
+	//Para uma operação já medida por quem chama (conta sempre e registra o tempo)
+	public void record(long nanos) {
+		calls.increment();
+		latency.record(nanos);
+	}
+	
+	@Override
+	public String getName() {
+		return name;
+	}
+	
+	@Override
+	public long getCalls() {
+		return calls.sum();
+	}
+	
+	@Override
+	public long getSampledCalls() {
+		return latency.getCount();
+	}
+	
+	@Override
+	public double getMeanNanos() {
+		return latency.getMean();
+	}
+	
+	@Override
+	public long getMaxNanos() {
+		return latency.getMax();
+	}
+	
+	@Override
+	public long getP50Nanos() {
+		return latency.getPercentile(50);
+	}
+	
+	@Override
+	public long getP90Nanos() {
+		return latency.getPercentile(90);
+	}
+	
+	@Override
+	public long getP99Nanos() {
+		return latency.getPercentile(99);
+	}
+	
+	@Override
+	public long getP999Nanos() {
+		return latency.getPercentile(99.9);
+	}
+	
+	//Cópia dos tempos medidos até agora
+	public Histogram getLatency() {
+		return latency.copy();
+	}
+	
+	@Override
+	public void reset() {
+		calls.reset();
+		latency.reset();
+	}
+	
+	@Override
+	public String toString() {
+		Histogram h = latency.copy();
+		return String.format("%s calls=%d sampled=%d mean=%.0fns p50=%dns p90=%dns p99=%dns p99.9=%dns max=%dns",
+				name, getCalls(), h.getCount(), h.getMean(), h.getPercentile(50), h.getPercentile(90),
+				h.getPercentile(99), h.getPercentile(99.9), h.getMax());
+	}
+}
@@ -0,0 +1,25 @@
+package metrics;
+
+//Atributos de um Timer vistos pelo JMX (jconsole, VisualVM, agentes de coleta)
+public interface TimerMBean {
+
+	String getName();
+	
+	long getCalls();
+	
+	long getSampledCalls();
+	
+	double getMeanNanos();
+	
+	long getMaxNanos();
+	
+	long getP50Nanos();
+	
+	long getP90Nanos();
+	
+	long getP99Nanos();
+	
+	long getP999Nanos();
+	
+	void reset();
+}
@@ -0,0 +1,139 @@
+package server;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import chess.ChessBoard;
+import chess.ChessMatch;
+import chess.ChessPiece;
+import chess.Color;
+import chess.Move;
+import chess.MoveList;
+
+/*
+ Partida do MatchHost com um único escritor: os comandos de todas as conexões
+ entram numa fila e são executados um de cada vez, em ordem, por quem encontrar
+ a partida livre (a thread que enviou o comando ou outra que chegou antes). A
+ ChessMatch só é tocada por esse escritor e nenhuma trava é segurada durante a
+ leitura ou a escrita nos sockets: o comando devolve a resposta como texto e
+ cada conexão escreve a sua depois.
+ */
+final class HostedMatch {
+
+	private final long id;
+	private final ChessMatch chessMatch = new ChessMatch();
+	private final ConcurrentLinkedQueue<Command> mailbox = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean running = new AtomicBoolean();
+	
+	HostedMatch(long id) {
+		this.id = id;
+	}
+	
+	long getId() {
+		return id;
+	}
+	
+	/*Enfileira o comando e, se ninguém estiver executando a fila, executa; a
+	 resposta fica pronta quando o escritor chegar nele*/
+	CompletableFuture<String> submit(Function<HostedMatch, String> action) {
+		Command command = new Command(action);
+		mailbox.add(command);
+		drain();
+		return command.result;
+	}
+	
+	private void drain() {
+		//Quem solta a partida olha a fila de novo, para não deixar um comando que chegou no meio sem escritor
+		while (!mailbox.isEmpty() && running.compareAndSet(false, true)) {
+			try {
+				Command command;
+				while ((command = mailbox.poll()) != null) {
+					String response;
+					try {
+						response = command.action.apply(this);
+					}
+					catch (RuntimeException e) {
+						response = "error " + e.getMessage();
+					}
+					command.result.complete(response);
+				}
+			}
+			finally {
+				running.set(false);
+			}
+		}
+	}
+	
+	//Os métodos abaixo só são chamados pelo escritor, dentro de um comando
+	
+	String play(String text) {
+		if (!chessMatch.hasLegalMove()) {
+			return "error game over";
+		}
+		int move = Move.parse(chessMatch, text);
+		if (move == Move.NONE) {
+			return "error illegal move " + text;
+		}
+		chessMatch.makeMove(move);
+		return "ok " + status();
+	}
+	
+	String state() {
+		return "ok " + status();
+	}
+	
+	String fen() {
+		return "ok " + chessMatch.toFen();
+	}
+	
+	//O buffer é criado a cada pedido para não ocupar memória nas partidas paradas
+	String legalMoves() {
+		MoveList moves = new MoveList();
+		chessMatch.generateLegalMoves(moves);
+		StringBuilder sb = new StringBuilder(4 + 6 * moves.size()).append("ok");
+		for (int i = 0; i < moves.size(); i++) {
+			sb.append(' ').append(Move.toString(moves.get(i)));
+		}
+		return sb.toString();
+	}
+	
+	//Uma linha por fileira, da 8 para a 1, com as pretas em minúsculas; termina na linha de resposta
+	String board() {
+		ChessBoard board = chessMatch.getBoard();
+		StringBuilder sb = new StringBuilder(256);
+		for (int row = 0; row < ChessBoard.SIZE; row++) {
+			sb.append(8 - row);
+			for (int column = 0; column < ChessBoard.SIZE; column++) {
+				ChessPiece piece = board.pieceAt(ChessBoard.square(row, column));
+				char c = piece == null ? '-' : Move.letter(piece.getType());
+				sb.append(' ').append(piece != null && piece.getColor() == Color.BLACK ? Character.toLowerCase(c) : c);
+			}
+			sb.append('\n');
+		}
+		sb.append("  a b c d e f g h\n");
+		return sb.append("ok ").append(status()).toString();
+	}
+	
+	//Número do lance, jogador da vez e situação: playing, check, checkmate ou stalemate
+	private String status() {
+		String situation;
+		if (chessMatch.hasLegalMove()) {
+			situation = chessMatch.getCheck() ? "check" : "playing";
+		}
+		else {
+			situation = chessMatch.getCheck() ? "checkmate" : "stalemate";
+		}
+		return chessMatch.getTurn() + " " + chessMatch.getCurrentPlayer() + " " + situation;
+	}
+	
+	private static final class Command {
+		final Function<HostedMatch, String> action;
+		final CompletableFuture<String> result = new CompletableFuture<>();
+		
+		Command(Function<HostedMatch, String> action) {
+			this.action = action;
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/*
+ Gerador de carga para o MatchHost: abre connections conexões, cada uma numa
+ thread, e divide entre elas as partidas. Cada conexão abre as suas partidas,
+ joga plies lances aleatórios em cada uma (pede os lances legais e escolhe um),
+ em rodízio, e no fim as fecha. Entre o jogo e o fechamento todas as partidas
+ estão abertas ao mesmo tempo no servidor, e o checkpoint é chamado uma vez
+ nesse ponto (para medir a memória, por exemplo). Se uma conexão falhar, as
+ outras param no próximo comando, o checkpoint não é chamado e o run lança o
+ primeiro erro.
+ */
+public class LoadGenerator {
+
+	private final InetSocketAddress address;
+	private final int connections;
+	private final long seed;
+	
+	public LoadGenerator(InetSocketAddress address, int connections, long seed) {
+		if (connections < 1) {
+			throw new IllegalArgumentException("Connection count must be at least 1");
+		}
+		this.address = address;
+		this.connections = connections;
+		this.seed = seed;
+	}
+	
+	public Report run(int matches, int plies, Runnable checkpoint) {
+		AtomicLong requests = new AtomicLong();
+		AtomicLong latency = new AtomicLong();
+		AtomicLong maxLatency = new AtomicLong();
+		AtomicLong moves = new AtomicLong();
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		/*Ponto de encontro depois do jogo. Uma conexão que falha (ou para por causa
+		 da falha de outra) antes de chegar nele sai do Phaser, e quem já estava
+		 esperando é liberado sem o checkpoint*/
+		Phaser phaser = new Phaser(connections) {
+			@Override
+			protected boolean onAdvance(int phase, int parties) {
+				if (failure.get() == null) {
+					try {
+						checkpoint.run();
+					}
+					catch (Throwable e) {
+						failure.compareAndSet(null, e);
+					}
+				}
+				return true;
+			}
+		};
+		ThreadFactory factory = MatchHost.threadFactory("load");
+		Thread[] threads = new Thread[connections];
+		long start = System.nanoTime();
+		for (int t = 0; t < connections; t++) {
+			//As primeiras conexões ficam com uma partida a mais quando a divisão não é exata
+			int share = matches / connections + (t < matches % connections ? 1 : 0);
+			Client client = new Client(new Random(seed + t), failure);
+			threads[t] = factory.newThread(() -> {
+				try {
+					client.run(share, plies, phaser);
+				}
+				catch (Throwable e) {
+					//Fica o primeiro erro; as outras conexões param ao vê-lo
+					failure.compareAndSet(null, e);
+				}
+				finally {
+					if (!client.arrived) {
+						phaser.arriveAndDeregister();
+					}
+				}
+				requests.addAndGet(client.requests);
+				latency.addAndGet(client.latency);
+				maxLatency.accumulateAndGet(client.maxLatency, Math::max);
+				moves.addAndGet(client.moves);
+			});
+			threads[t].start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		Throwable error = failure.get();
+		if (error != null) {
+			throw new IllegalStateException("Load generator failed: " + error, error);
+		}
+		return new Report(matches, connections, moves.get(), requests.get(), System.nanoTime() - start, latency.get(), maxLatency.get());
+	}
+	
+	//Uma conexão: manda um comando e espera a resposta antes do próximo
+	private final class Client {
+		private final Random random;
+		private final AtomicReference<Throwable> failure;
+		private BufferedReader in;
+		private BufferedWriter out;
+		long requests;
+		long latency;
+		long maxLatency;
+		long moves;
+		//Chegou ao Phaser (senão, quem roda o cliente tira ele de lá)
+		boolean arrived;
+		
+		Client(Random random, AtomicReference<Throwable> failure) {
+			this.random = random;
+			this.failure = failure;
+		}
+		
+		void run(int matches, int plies, Phaser phaser) throws IOException {
+			try (Socket socket = new Socket()) {
+				socket.setTcpNoDelay(true);
+				socket.connect(address);
+				in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+				out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII));
+				long[] ids = new long[matches];
+				for (int i = 0; i < matches; i++) {
+					ids[i] = Long.parseLong(request("new").substring(3));
+				}
+				boolean[] over = new boolean[matches];
+				for (int ply = 0; ply < plies; ply++) {
+					for (int i = 0; i < matches; i++) {
+						if (!over[i]) {
+							over[i] = !playRandom(ids[i]);
+						}
+					}
+				}
+				arrived = true;
+				phaser.arriveAndAwaitAdvance();
+				if (failure.get() != null) {
+					return;
+				}
+				for (int i = 0; i < matches; i++) {
+					request("close " + ids[i]);
+				}
+				request("quit");
+			}
+		}
+		
+		//Joga um lance legal qualquer; false se a partida já tiver acabado
+		private boolean playRandom(long id) throws IOException {
+			String[] legal = request("moves " + id).split(" ");
+			if (legal.length == 1) {
+				return false;
+			}
+			request("move " + id + " " + legal[1 + random.nextInt(legal.length - 1)]);
+			moves++;
+			return true;
+		}
+		
+		//Manda o comando e retorna a última linha da resposta; erro do servidor vira exceção
+		private String request(String command) throws IOException {
+			if (failure.get() != null) {
+				throw new IllegalStateException("Stopped after a failure on another connection");
+			}
+			long start = System.nanoTime();
+			out.write(command);
+			out.write('\n');
+			out.flush();
+			String line;
+			do {
+				line = in.readLine();
+				if (line == null) {
+					throw new UncheckedIOException(new IOException("Connection closed by the host"));
+				}
+			}
+			while (!line.startsWith("ok") && !line.startsWith("error"));
+			long elapsed = System.nanoTime() - start;
+			requests++;
+			latency += elapsed;
+			maxLatency = Math.max(maxLatency, elapsed);
+			if (line.startsWith("error")) {
+				throw new IllegalStateException(command + ": " + line);
+			}
+			return line;
+		}
+	}
+	
+	public static final class Report {
+		private final int matches;
+		private final int connections;
+		private final long moves;
+		private final long requests;
+		private final long nanos;
+		private final long latency;
+		private final long maxLatency;
+		
+		Report(int matches, int connections, long moves, long requests, long nanos, long latency, long maxLatency) {
+			this.matches = matches;
+			this.connections = connections;
+			this.moves = moves;
+			this.requests = requests;
+			this.nanos = nanos;
+			this.latency = latency;
+			this.maxLatency = maxLatency;
+		}
+		
+		public long getMoves() {
+			return moves;
+		}
+		
+		public long getRequests() {
+			return requests;
+		}
+		
+		public double getRequestsPerSecond() {
+			return requests * 1e9 / Math.max(1, nanos);
+		}
+		
+		//Tempo médio de ida e volta de um comando, em microssegundos
+		public double getAverageLatency() {
+			return latency / 1e3 / Math.max(1, requests);
+		}
+		
+		@Override
+		public String toString() {
+			return String.format("%,d matches on %,d connections: %,d moves, %,d requests in %,d ms (%,.0f requests/s), latency avg %.1f us, max %.1f ms",
+					matches, connections, moves, requests, nanos / 1_000_000, getRequestsPerSecond(), getAverageLatency(), maxLatency / 1e6);
+		}
+	}
+}
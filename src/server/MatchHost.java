@@ -0,0 +1,243 @@
+package server;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/*
+ Servidor de partidas: um registro de partidas abertas, cada uma com um número,
+ e um protocolo de linhas de texto num socket TCP local. Cada conexão tem a sua
+ thread (virtual, quando a JVM tiver) e pode jogar em qualquer partida do
+ registro; as partidas executam os comandos com um único escritor (ver
+ HostedMatch), então várias conexões podem mandar lances na mesma partida.
+
+ Comandos (um por linha) e respostas:
+   new                  ok <partida>
+   move <partida> e2e4  ok <lance> <WHITE|BLACK> <playing|check|checkmate|stalemate>
+   state <partida>      ok <lance> <jogador> <situação>
+   moves <partida>      ok e2e4 d2d4 ...   (lances legais)
+   fen <partida>        ok <FEN>
+   board <partida>      o tabuleiro em 9 linhas e depois ok <lance> <jogador> <situação>
+   close <partida>      ok
+   stats                ok matches <abertas> connections <conexões>
+   quit                 ok, e a conexão é fechada
+ A resposta termina sempre numa linha que começa com "ok" ou com "error <motivo>".
+ */
+public class MatchHost implements Closeable {
+
+	//Pilha das threads comuns, quando não há threads virtuais: as conexões não usam recursão
+	private static final long PLATFORM_STACK = 256 * 1024;
+	
+	private final ConcurrentHashMap<Long, HostedMatch> matches = new ConcurrentHashMap<>();
+	private final AtomicLong nextId = new AtomicLong();
+	private final AtomicInteger matchCount = new AtomicInteger();
+	private final int maxMatches;
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+	private final ServerSocket serverSocket;
+	private final ThreadFactory threads = threadFactory("match-host");
+	private volatile boolean closed;
+	
+	//Abre o socket no endereço e porta fornecidos (porta 0 para qualquer uma livre)
+	public MatchHost(InetAddress address, int port, int maxMatches) throws IOException {
+		this.maxMatches = maxMatches;
+		serverSocket = new ServerSocket();
+		serverSocket.setReuseAddress(true);
+		serverSocket.bind(new InetSocketAddress(address, port), 1024);
+	}
+	
+	//Começa a aceitar conexões numa thread própria e retorna
+	public void start() {
+		threads.newThread(this::accept).start();
+	}
+	
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+	
+	//Partidas abertas no registro
+	public int size() {
+		return matchCount.get();
+	}
+	
+	public int getConnections() {
+		return connections.size();
+	}
+	
+	//Testa se as conexões rodam em threads virtuais (Java 21 em diante)
+	public static boolean hasVirtualThreads() {
+		return virtualBuilder() != null;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		closed = true;
+		serverSocket.close();
+		for (Socket socket : connections) {
+			socket.close();
+		}
+	}
+	
+	private void accept() {
+		while (!closed) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			}
+			catch (IOException e) {
+				if (closed) {
+					return;
+				}
+				continue;
+			}
+			connections.add(socket);
+			threads.newThread(() -> serve(socket)).start();
+		}
+	}
+	
+	private void serve(Socket socket) {
+		try (Socket s = socket;
+				BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.US_ASCII));
+				BufferedWriter out = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.US_ASCII))) {
+			s.setTcpNoDelay(true);
+			String line;
+			while ((line = in.readLine()) != null) {
+				String command = line.trim();
+				out.write(handle(command));
+				out.write('\n');
+				if (command.equals("quit")) {
+					out.flush();
+					break;
+				}
+				//Com vários comandos já chegados (em sequência, sem esperar), as respostas vão juntas
+				if (!in.ready()) {
+					out.flush();
+				}
+			}
+		}
+		catch (IOException e) {
+			//Conexão fechada pelo cliente ou pelo close: só sai
+		}
+		finally {
+			connections.remove(socket);
+		}
+	}
+	
+	//Executa um comando e retorna a resposta; os comandos de partida esperam o escritor dela
+	String handle(String line) {
+		String[] words = line.split("\\s+");
+		switch (words[0]) {
+		case "new":
+			return create();
+		case "move":
+			if (words.length != 3) {
+				return "error usage: move <match> <move>";
+			}
+			String move = words[2];
+			return send(words[1], match -> match.play(move));
+		case "state":
+			return send(words, HostedMatch::state);
+		case "moves":
+			return send(words, HostedMatch::legalMoves);
+		case "fen":
+			return send(words, HostedMatch::fen);
+		case "board":
+			return send(words, HostedMatch::board);
+		case "close":
+			if (words.length != 2) {
+				return "error usage: close <match>";
+			}
+			HostedMatch match = find(words[1]);
+			if (match == null || matches.remove(match.getId()) == null) {
+				return "error no such match " + words[1];
+			}
+			matchCount.decrementAndGet();
+			return "ok";
+		case "stats":
+			return "ok matches " + size() + " connections " + getConnections();
+		case "quit":
+			return "ok";
+		default:
+			return "error unknown command " + words[0];
+		}
+	}
+	
+	private String create() {
+		if (matchCount.incrementAndGet() > maxMatches) {
+			matchCount.decrementAndGet();
+			return "error too many matches";
+		}
+		long id = nextId.incrementAndGet();
+		matches.put(id, new HostedMatch(id));
+		return "ok " + id;
+	}
+	
+	private String send(String[] words, Function<HostedMatch, String> action) {
+		if (words.length != 2) {
+			return "error usage: " + words[0] + " <match>";
+		}
+		return send(words[1], action);
+	}
+	
+	private String send(String id, Function<HostedMatch, String> action) {
+		HostedMatch match = find(id);
+		if (match == null) {
+			return "error no such match " + id;
+		}
+		return match.submit(action).join();
+	}
+	
+	private HostedMatch find(String id) {
+		try {
+			return matches.get(Long.parseLong(id));
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
+	/*Fábrica de threads virtuais se a JVM tiver (Java 21 em diante), buscada por
+	 reflexão porque o projeto compila para o Java 11; senão, threads comuns com
+	 pilha pequena*/
+	static ThreadFactory threadFactory(String name) {
+		Object builder = virtualBuilder();
+		if (builder != null) {
+			try {
+				Class<?> type = Class.forName("java.lang.Thread$Builder");
+				builder = type.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+				return (ThreadFactory) type.getMethod("factory").invoke(builder);
+			}
+			catch (ReflectiveOperationException e) {
+				//Cai nas threads comuns
+			}
+		}
+		AtomicLong count = new AtomicLong();
+		return runnable -> {
+			Thread thread = new Thread(null, runnable, name + "-" + count.getAndIncrement(), PLATFORM_STACK);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+	
+	private static Object virtualBuilder() {
+		try {
+			return Thread.class.getMethod("ofVirtual").invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+}